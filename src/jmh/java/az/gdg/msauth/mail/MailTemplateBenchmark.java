@@ -0,0 +1,45 @@
+package az.gdg.msauth.mail;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// compares compiled template rendering with the former string concatenation of reset password mail
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MailTemplateBenchmark {
+
+    private static final String RESET_PASSWORD_URL = "http://virustat.org/reset.html?token=";
+
+    private MailTemplates mailTemplates;
+    private String token;
+
+    @Setup
+    public void setup() {
+        mailTemplates = new MailTemplates(new DefaultResourceLoader(),
+                "https://gdg-ms-auth.herokuapp.com/user/verify-account?token=", RESET_PASSWORD_URL);
+        token = UUID.randomUUID().toString() + UUID.randomUUID().toString() + UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public String concatenation() {
+        return "<h2>" + "Reset Password" + "</h2>" + "</br>" +
+                "<a href=" +
+                RESET_PASSWORD_URL + token + ">" +
+                RESET_PASSWORD_URL + token + "</a>";
+    }
+
+    @Benchmark
+    public String template() {
+        return mailTemplates.resetPassword(token);
+    }
+}
@@ -0,0 +1,108 @@
+package az.gdg.msauth.security.filter;
+
+import az.gdg.msauth.dao.TokenRevocationRepository;
+import az.gdg.msauth.security.bean.CustomUserDetail;
+import az.gdg.msauth.security.controller.EntryPointUnauthorizedHandler;
+import az.gdg.msauth.security.model.Role;
+import az.gdg.msauth.security.model.Status;
+import az.gdg.msauth.security.service.impl.TokenRevocationServiceImpl;
+import az.gdg.msauth.security.service.impl.UserDetailServiceImpl;
+import az.gdg.msauth.security.util.TokenClaimsCache;
+import az.gdg.msauth.security.util.TokenGenerationBenchmark;
+import az.gdg.msauth.security.util.TokenUtil;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// authenticated request through TokenFilter, DEBUG emits the hot path lines which used to be logged at INFO.
+// loadedPrincipal is the jwt.statelessPrincipal=false path, user lookup is mocked so only filter work is measured
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TokenFilterBenchmark {
+
+    @Param({"INFO", "DEBUG"})
+    public String logLevel;
+
+    private TokenFilter tokenFilter;
+    private TokenFilter loadingTokenFilter;
+    private String token;
+
+    @Setup
+    public void setup() {
+        ((Logger) LoggerFactory.getLogger("az.gdg.msauth")).setLevel(Level.toLevel(logLevel));
+        TokenUtil tokenUtil = TokenGenerationBenchmark.createTokenUtil(new TokenClaimsCache(10000));
+        TokenRevocationRepository tokenRevocationRepository = Mockito.mock(TokenRevocationRepository.class);
+        Mockito.when(tokenRevocationRepository.findById("example@mail.ru")).thenReturn(Optional.empty());
+        TokenRevocationServiceImpl tokenRevocationService = new TokenRevocationServiceImpl(tokenRevocationRepository,
+                Duration.ofMinutes(1), 10000);
+        EntryPointUnauthorizedHandler entryPoint = new EntryPointUnauthorizedHandler();
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        tokenFilter = new TokenFilter(tokenUtil, null, tokenRevocationService, entryPoint, true, meterRegistry);
+
+        UserDetailServiceImpl userDetailService = Mockito.mock(UserDetailServiceImpl.class);
+        Mockito.when(userDetailService.loadUserByUsername("example@mail.ru")).thenReturn(CustomUserDetail.builder()
+                .id(1L)
+                .username("example@mail.ru")
+                .mail("example@mail.ru")
+                .authorities(Collections.singletonList(Role.ROLE_USER))
+                .status(Status.CONFIRMED)
+                .accountNonExpired(true)
+                .accountNonLocked(true)
+                .credentialsNonExpired(true)
+                .enabled(true).build());
+        loadingTokenFilter = new TokenFilter(tokenUtil, userDetailService, tokenRevocationService, entryPoint, false,
+                meterRegistry);
+        token = tokenUtil.generateTokens("example@mail.ru", "1", "ROLE_USER", "CONFIRMED").getAccess();
+    }
+
+    @TearDown
+    public void tearDown() {
+        ((Logger) LoggerFactory.getLogger("az.gdg.msauth")).setLevel(null);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse filterAuthenticatedRequest() throws ServletException, IOException {
+        return filter(tokenFilter);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse filterLoadedPrincipal() throws ServletException, IOException {
+        return filter(loadingTokenFilter);
+    }
+
+    private MockHttpServletResponse filter(TokenFilter filter) throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/user/info");
+        request.addHeader("X-Auth-Token", token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, new MockFilterChain());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return response;
+    }
+}
@@ -0,0 +1,94 @@
+package az.gdg.msauth.security.util;
+
+import az.gdg.msauth.security.model.TokenType;
+import az.gdg.msauth.security.model.dto.JwtAuthenticationResponse;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.security.Key;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// token part of a login: former per token claims maps against one shared claims set
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TokenGenerationBenchmark {
+
+    public static final String SECRET =
+            "YXNka2olXl4md2ZvQWlldzg5MzQyMzQ4dWRmZGkhQCMkJV4mKigjKEAofmB8dm9tYm9tQUAjJF4pKCop" +
+            "SkZpaWZvZ3JlZ2lXWVFSSU4mJiohJDAxODQ3OTI1MDEzMUlBSUFCVlNIU0hTRzU5Mjk1MHRXSUpPR1NT" +
+            "ISMxNDQyNChAKCUoKUAqJSgpKg==";
+    private static final long ACCESS_EXPIRATION = 9000;
+    private static final long REFRESH_EXPIRATION = 12000;
+
+    private TokenUtil tokenUtil;
+    private Key key;
+
+    @Setup
+    public void setup() {
+        tokenUtil = createTokenUtil(new TokenClaimsCache(10000));
+        key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+    }
+
+    @Benchmark
+    public JwtAuthenticationResponse separateClaims() {
+        String access = generateToken("example@mail.ru", "1", "ROLE_USER", "CONFIRMED", TokenType.ACCESS);
+        String refresh = generateToken("example@mail.ru", "1", "ROLE_USER", "CONFIRMED", TokenType.REFRESH);
+        return new JwtAuthenticationResponse(access, refresh);
+    }
+
+    @Benchmark
+    public JwtAuthenticationResponse sharedClaims() {
+        return tokenUtil.generateTokens("example@mail.ru", "1", "ROLE_USER", "CONFIRMED");
+    }
+
+    public static TokenUtil createTokenUtil(TokenClaimsCache claimsCache) {
+        TokenUtil tokenUtil = new TokenUtil(claimsCache);
+        setField(tokenUtil, "secret", SECRET);
+        setField(tokenUtil, "accessExpiration", ACCESS_EXPIRATION);
+        setField(tokenUtil, "refreshExpiration", REFRESH_EXPIRATION);
+        setField(tokenUtil, "verifyTokenExpiration", 5000L);
+        tokenUtil.init();
+        return tokenUtil;
+    }
+
+    private static void setField(TokenUtil tokenUtil, String name, Object value) {
+        Field field = ReflectionUtils.findField(TokenUtil.class, name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, tokenUtil, value);
+    }
+
+    // token generation as it was done before generateTokens
+    private String generateToken(String username, String userId, String role, String status, TokenType tokenType) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("userId", userId);
+        claims.put("role", role);
+        claims.put("status", status);
+        claims.put("tokenType", tokenType);
+
+        Date createdDate = new Date();
+        long expiration = TokenType.ACCESS.equals(tokenType) ? ACCESS_EXPIRATION : REFRESH_EXPIRATION;
+        return Jwts.builder()
+                .setClaims(claims)
+                .setSubject(username)
+                .setId(userId)
+                .setIssuedAt(createdDate)
+                .setExpiration(new Date(createdDate.getTime() + expiration * 100))
+                .signWith(key, SignatureAlgorithm.HS512)
+                .compact();
+    }
+}
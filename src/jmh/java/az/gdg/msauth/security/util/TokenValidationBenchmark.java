@@ -0,0 +1,58 @@
+package az.gdg.msauth.security.util;
+
+import az.gdg.msauth.security.model.dto.UserInfo;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// reads done for every authenticated request, without claims cache each of them verifies signature again
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TokenValidationBenchmark {
+
+    @Param({"true", "false"})
+    public boolean claimsCache;
+
+    private TokenUtil tokenUtil;
+    private String token;
+
+    @Setup
+    public void setup() {
+        tokenUtil = TokenGenerationBenchmark.createTokenUtil(
+                claimsCache ? new TokenClaimsCache(10000) : new UncachedClaims());
+        token = tokenUtil.generateTokens("example@mail.ru", "1", "ROLE_USER", "CONFIRMED").getAccess();
+    }
+
+    @Benchmark
+    public boolean isTokenValid() {
+        return tokenUtil.isTokenValid(token);
+    }
+
+    @Benchmark
+    public UserInfo getUserInfoFromToken() {
+        return tokenUtil.getUserInfoFromToken(token);
+    }
+
+    // parses on every read, a cache of size zero isn't used for it as caffeine evicts asynchronously
+    private static class UncachedClaims extends TokenClaimsCache {
+
+        UncachedClaims() {
+            super(0);
+        }
+
+        @Override
+        public Claims get(String token, Function<String, Claims> parser) {
+            return parser.apply(token);
+        }
+    }
+}
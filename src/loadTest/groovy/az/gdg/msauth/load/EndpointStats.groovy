@@ -0,0 +1,39 @@
+package az.gdg.msauth.load
+
+import org.HdrHistogram.ConcurrentHistogram
+import org.HdrHistogram.Histogram
+
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.LongAdder
+
+// client side latencies of one operation, recorded by all workers
+class EndpointStats {
+
+    private static final long MAX_LATENCY = TimeUnit.MINUTES.toNanos(1)
+
+    private final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY, 3)
+    private final LongAdder errors = new LongAdder()
+
+    void record(long nanos, int status) {
+        latencies.recordValue(Math.min(nanos, MAX_LATENCY))
+        if (status < 200 || status >= 400) {
+            errors.increment()
+        }
+    }
+
+    long getCount() {
+        latencies.getTotalCount()
+    }
+
+    long getErrors() {
+        errors.sum()
+    }
+
+    double percentileMillis(double percentile) {
+        latencies.getValueAtPercentile(percentile) / 1_000_000d
+    }
+
+    double getMaxMillis() {
+        latencies.getMaxValue() / 1_000_000d
+    }
+}
@@ -0,0 +1,79 @@
+package az.gdg.msauth.load
+
+import java.net.http.HttpClient
+import java.net.http.HttpRequest
+import java.net.http.HttpResponse
+import java.time.Duration
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadLocalRandom
+
+// closed loop load, every worker sends its next request as soon as the previous one is answered
+class LoadScenario {
+
+    static class Operation {
+
+        final String name
+        final String route
+        final Closure<HttpRequest> request
+
+        Operation(String name, String route, Closure<HttpRequest> request) {
+            this.name = name
+            this.route = route
+            this.request = request
+        }
+    }
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build()
+    private final List<Operation> operations
+    private final Operation[] weighted
+
+    // mix is operation name to weight, e.g. [info: 30, login: 5]
+    LoadScenario(List<Operation> operations, Map<String, Integer> mix) {
+        this.operations = operations.findAll { mix.getOrDefault(it.name, 0) > 0 }
+        this.weighted = this.operations.collectMany { operation ->
+            Collections.nCopies(mix[operation.name], operation)
+        } as Operation[]
+    }
+
+    List<Operation> getOperations() {
+        operations
+    }
+
+    Map<String, EndpointStats> run(int concurrency, Duration duration) {
+        Map<String, EndpointStats> stats = operations.collectEntries { [(it.name): new EndpointStats()] }
+        long deadline = System.nanoTime() + duration.toNanos()
+
+        def executor = Executors.newFixedThreadPool(concurrency)
+        try {
+            def workers = (1..concurrency).collect {
+                executor.submit({ work(stats, deadline) } as Callable<Void>)
+            }
+            workers*.get()
+        } finally {
+            executor.shutdownNow()
+        }
+        stats
+    }
+
+    private Void work(Map<String, EndpointStats> stats, long deadline) {
+        def random = ThreadLocalRandom.current()
+        while (System.nanoTime() < deadline) {
+            Operation operation = weighted[random.nextInt(weighted.length)]
+            HttpRequest request = operation.request.call(random)
+
+            long start = System.nanoTime()
+            int status
+            try {
+                status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode()
+            } catch (IOException ignored) {
+                status = -1
+            }
+            stats[operation.name].record(System.nanoTime() - start, status)
+        }
+        null
+    }
+}
@@ -0,0 +1,215 @@
+package az.gdg.msauth.load
+
+import az.gdg.msauth.MsAuthApplication
+import az.gdg.msauth.cache.PopularityLeaderboard
+import groovy.json.JsonOutput
+import groovy.json.JsonSlurper
+import org.springframework.boot.builder.SpringApplicationBuilder
+import org.springframework.context.ConfigurableApplicationContext
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.security.crypto.password.PasswordEncoder
+import org.testcontainers.DockerClientFactory
+import org.testcontainers.containers.MySQLContainer
+import spock.lang.Requires
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Title
+
+import java.net.http.HttpClient
+import java.net.http.HttpRequest
+import java.net.http.HttpResponse
+import java.sql.Date
+import java.sql.Timestamp
+import java.time.Duration
+import java.time.LocalDate
+import java.time.LocalDateTime
+import java.time.format.DateTimeFormatter
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+
+// baseline for user and authentication endpoints, run with ./gradlew loadTest, needs docker for mysql container
+@Title("Load test for user and authentication endpoints")
+@Requires({ DockerClientFactory.instance().isDockerAvailable() })
+class UserLoadTest extends Specification {
+
+    private static final String PASSWORD = "Password1!"
+    private static final String TOKEN_HEADER = "X-Auth-Token"
+    private static final String DEFAULT_MIX = "login:5,info:30,getUsers:20,popularity:25,quack:10,hate:10"
+    private static final int GET_USERS_SIZE = 20
+    // quota isn't what is measured, so users don't run out of quacks and hates
+    private static final int QUOTA = 1_000_000
+
+    @Shared
+    private int concurrency = Integer.getInteger("loadTest.concurrency", 16)
+    @Shared
+    private int userCount = Integer.getInteger("loadTest.users", 200)
+    @Shared
+    private Duration warmup = Duration.ofSeconds(Integer.getInteger("loadTest.warmupSeconds", 10))
+    @Shared
+    private Duration duration = Duration.ofSeconds(Integer.getInteger("loadTest.durationSeconds", 60))
+    @Shared
+    private double maxErrorRate = Double.parseDouble(System.getProperty("loadTest.maxErrorRate", "0.01"))
+    @Shared
+    private Map<String, Integer> mix = parseMix(System.getProperty("loadTest.mix", DEFAULT_MIX))
+
+    @Shared
+    private MySQLContainer mysql = new MySQLContainer(System.getProperty("loadTest.mysqlImage", "mysql:8.0"))
+    @Shared
+    private ConfigurableApplicationContext context
+    @Shared
+    private HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()
+    @Shared
+    private String baseUrl
+    @Shared
+    private List<Map<String, Object>> users
+    @Shared
+    private List<String> tokens
+
+    def setupSpec() {
+        mysql.start()
+        // command line arguments win over application.yml
+        context = new SpringApplicationBuilder(MsAuthApplication)
+                .profiles("loadtest")
+                .run("--spring.datasource.url=" + mysql.getJdbcUrl(),
+                        "--spring.datasource.username=" + mysql.getUsername(),
+                        "--spring.datasource.password=" + mysql.getPassword(),
+                        "--server.port=0")
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+
+        seedUsers()
+        def executor = Executors.newFixedThreadPool(concurrency)
+        try {
+            def signIns = users.collect { user -> return { signIn(user.mail) } as Callable<String> }
+            tokens = executor.invokeAll(signIns)*.get()
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    def cleanupSpec() {
+        context?.close()
+        mysql.stop()
+    }
+
+    def "run mixed load and report latency, throughput and queries per endpoint"() {
+        given:
+        def scenario = new LoadScenario(operations(), mix)
+        def queryCountFilter = context.getBean(QueryCountFilter)
+        scenario.run(concurrency, warmup)
+        queryCountFilter.reset()
+
+        when:
+        def stats = scenario.run(concurrency, duration)
+        def report = report(scenario, stats, queryCountFilter.getQueriesPerRequest())
+        println(report)
+        writeReport(report)
+
+        then:
+        long total = stats.values().sum { it.count } as long
+        long errors = stats.values().sum { it.errors } as long
+        total > 0
+        errors <= total * maxErrorRate
+    }
+
+    private void seedUsers() {
+        def jdbcTemplate = context.getBean(JdbcTemplate)
+        // one hash for all users, hashing cost is measured by login itself
+        def password = context.getBean(PasswordEncoder).encode(PASSWORD)
+        def now = new Timestamp(System.currentTimeMillis())
+        def today = Date.valueOf(LocalDate.now())
+        def rows = (1..userCount).collect {
+            def mail = "load" + it + "@mail.ru"
+            [mail, "Load", "User", password, "ROLE_USER", "CONFIRMED", 0, mail, now, now, QUOTA, QUOTA,
+             today] as Object[]
+        }
+        jdbcTemplate.batchUpdate("insert into users (mail, first_name, last_name, password, role, status, " +
+                "popularity, username, created_at, updated_at, remaining_quack_count, remaining_hate_count, " +
+                "quota_day) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows)
+        users = jdbcTemplate.queryForList("select id, mail from users where mail like 'load%' order by id")
+                .collect { [id: it.id as Long, mail: it.mail] }
+        context.getBean(PopularityLeaderboard).rebuild()
+    }
+
+    private String signIn(String mail) {
+        def response = httpClient.send(post("/auth/sign-in", JsonOutput.toJson([mail: mail, password: PASSWORD])),
+                HttpResponse.BodyHandlers.ofString())
+        assert response.statusCode() == 201
+        new JsonSlurper().parseText(response.body()).access
+    }
+
+    private List<LoadScenario.Operation> operations() {
+        [
+                new LoadScenario.Operation("login", "POST /auth/sign-in", { random ->
+                    post("/auth/sign-in", JsonOutput.toJson([mail: user(random).mail, password: PASSWORD]))
+                }),
+                new LoadScenario.Operation("info", "GET /user/info", { random ->
+                    request("/user/info").header(TOKEN_HEADER, token(random)).GET().build()
+                }),
+                new LoadScenario.Operation("getUsers", "POST /user/get-users", { random ->
+                    post("/user/get-users", JsonOutput.toJson((1..GET_USERS_SIZE).collect { user(random).id }))
+                }),
+                new LoadScenario.Operation("popularity", "PUT /user/popularity/{userId}", { random ->
+                    request("/user/popularity/" + user(random).id).PUT(HttpRequest.BodyPublishers.noBody()).build()
+                }),
+                new LoadScenario.Operation("quack", "PUT /user/update-remaining-quack-count", { random ->
+                    request("/user/update-remaining-quack-count").header(TOKEN_HEADER, token(random))
+                            .PUT(HttpRequest.BodyPublishers.noBody()).build()
+                }),
+                new LoadScenario.Operation("hate", "PUT /user/update-remaining-hate-count", { random ->
+                    request("/user/update-remaining-hate-count").header(TOKEN_HEADER, token(random))
+                            .PUT(HttpRequest.BodyPublishers.noBody()).build()
+                })
+        ]
+    }
+
+    private Map<String, Object> user(Random random) {
+        users[random.nextInt(users.size())]
+    }
+
+    private String token(Random random) {
+        tokens[random.nextInt(tokens.size())]
+    }
+
+    private HttpRequest.Builder request(String path) {
+        HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30))
+    }
+
+    private HttpRequest post(String path, String json) {
+        request(path).header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build()
+    }
+
+    private String report(LoadScenario scenario, Map<String, EndpointStats> stats, Map<String, Double> queries) {
+        def seconds = duration.toMillis() / 1000d
+        def report = new StringBuilder()
+        report.append(String.format("concurrency=%d duration=%ds users=%d mix=%s%n",
+                concurrency, duration.getSeconds(), userCount, mix))
+        report.append(String.format("%-11s %-40s %9s %9s %7s %8s %8s %8s %9s %8s %8s%n", "operation", "route",
+                "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "queries"))
+        scenario.operations.each { operation ->
+            def endpoint = stats[operation.name]
+            report.append(String.format("%-11s %-40s %9d %9.1f %7d %8.2f %8.2f %8.2f %9.2f %8.2f %8.2f%n",
+                    operation.name, operation.route, endpoint.count, endpoint.count / seconds, endpoint.errors,
+                    endpoint.percentileMillis(50), endpoint.percentileMillis(90), endpoint.percentileMillis(99),
+                    endpoint.percentileMillis(99.9), endpoint.maxMillis, queries.getOrDefault(operation.route, 0d)))
+        }
+        long total = stats.values().sum { it.count } as long
+        report.append(String.format("total %d requests, %.1f req/s%n", total, total / seconds))
+        report.toString()
+    }
+
+    private static void writeReport(String report) {
+        def file = new File("build/reports/loadTest",
+                "report-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".txt")
+        file.parentFile.mkdirs()
+        file.text = report
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        mix.split(",").collectEntries {
+            def (name, weight) = it.split(":")*.trim()
+            [(name): Integer.parseInt(weight)]
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package az.gdg.msauth.load;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// database statements per route, e.g. "PUT /user/popularity/{userId}", only on load test classpath
+@Component
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    private final Map<String, RouteQueries> routes = new ConcurrentHashMap<>();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        QueryCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int queries = QueryCounter.stop();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String route = request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+            routes.computeIfAbsent(route, key -> new RouteQueries()).add(queries);
+        }
+    }
+
+    public Map<String, Double> getQueriesPerRequest() {
+        Map<String, Double> result = new TreeMap<>();
+        routes.forEach((route, queries) -> result.put(route, queries.perRequest()));
+        return result;
+    }
+
+    public void reset() {
+        routes.clear();
+    }
+
+    private static class RouteQueries {
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder queries = new LongAdder();
+
+        void add(int count) {
+            requests.increment();
+            queries.add(count);
+        }
+
+        double perRequest() {
+            long count = requests.sum();
+            return count == 0 ? 0 : (double) queries.sum() / count;
+        }
+    }
+}
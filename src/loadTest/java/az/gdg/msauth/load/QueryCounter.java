@@ -0,0 +1,29 @@
+package az.gdg.msauth.load;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// counts statements prepared by hibernate on the current request thread, see QueryCountFilter
+public class QueryCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    static void start() {
+        COUNT.set(new int[1]);
+    }
+
+    static int stop() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return count != null ? count[0] : 0;
+    }
+
+    // statements of scheduled jobs, e.g. outbox relay, don't belong to any request
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+}
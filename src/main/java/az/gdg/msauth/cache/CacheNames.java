@@ -0,0 +1,9 @@
+package az.gdg.msauth.cache;
+
+public final class CacheNames {
+
+    public static final String USER_DETAILS = "userDetails";
+
+    private CacheNames() {
+    }
+}
@@ -0,0 +1,9 @@
+package az.gdg.msauth.cache;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+
+// loader of one cache, CacheConfig builds the cache with name cacheName() as a loading cache
+public interface NamedCacheLoader<K, V> extends CacheLoader<K, V> {
+
+    String cacheName();
+}
@@ -0,0 +1,93 @@
+package az.gdg.msauth.cache;
+
+import az.gdg.msauth.dao.UserRepository;
+import az.gdg.msauth.model.dto.UserPopularity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Popularity increments are summed in memory per user and written with one batch per flush interval.
+// Increments which are not flushed yet are lost if the application crashes, that is at most one interval.
+@Component
+public class PopularityCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(PopularityCounter.class);
+    private static final int USER_IDS_CHUNK_SIZE = 500;
+    private final UserRepository userRepository;
+    private final PopularityLeaderboard popularityLeaderboard;
+    private final ConcurrentHashMap<Long, Long> pendingIncrements = new ConcurrentHashMap<>();
+
+    public PopularityCounter(UserRepository userRepository, PopularityLeaderboard popularityLeaderboard) {
+        this.userRepository = userRepository;
+        this.popularityLeaderboard = popularityLeaderboard;
+    }
+
+    public void increment(Long userId) {
+        pendingIncrements.merge(userId, 1L, Long::sum);
+    }
+
+    public int getPendingCount() {
+        return pendingIncrements.size();
+    }
+
+    @Scheduled(fixedDelayString = "${user.popularityFlushInterval:5000}")
+    public synchronized void flush() {
+        if (pendingIncrements.isEmpty()) {
+            return;
+        }
+        logger.info("CacheLog.flushPopularity.start");
+
+        // remove is atomic, increments arriving meanwhile stay for the next flush
+        Map<Long, Long> increments = new HashMap<>();
+        for (Long userId : pendingIncrements.keySet()) {
+            Long increment = pendingIncrements.remove(userId);
+            if (increment != null) {
+                increments.put(userId, increment);
+            }
+        }
+
+        try {
+            userRepository.addPopularities(increments);
+        } catch (RuntimeException e) {
+            // batch is rolled back as a whole, so all of its increments are retried on next flush
+            increments.forEach((userId, increment) -> pendingIncrements.merge(userId, increment, Long::sum));
+            logger.error("CacheLog.flushPopularity.error.userCount : {}", increments.size(), e);
+            return;
+        }
+
+        // only id and popularity are read, details are loaded for users who enter leaderboard
+        List<UserPopularity> popularities = new ArrayList<>(increments.size());
+        forEachChunk(new ArrayList<>(increments.keySet()),
+                chunk -> popularities.addAll(userRepository.findPopularitiesByIdIn(chunk)));
+        List<Long> candidates = popularityLeaderboard.updatePopularities(popularities);
+        if (!candidates.isEmpty()) {
+            Map<Long, Integer> popularityById = new HashMap<>();
+            popularities.forEach(popularity -> popularityById.put(popularity.getId(), popularity.getPopularity()));
+            forEachChunk(candidates, chunk -> userRepository.findUserDetailsByIdIn(chunk)
+                    .forEach(user -> popularityLeaderboard.offer(user, popularityById.get(user.getId()))));
+        }
+
+        logger.info("CacheLog.flushPopularity.stop.success.userCount : {}", increments.size());
+    }
+
+    // ids are fetched with bounded IN clauses
+    private static void forEachChunk(List<Long> userIds, Consumer<List<Long>> action) {
+        for (int from = 0; from < userIds.size(); from += USER_IDS_CHUNK_SIZE) {
+            action.accept(userIds.subList(from, Math.min(from + USER_IDS_CHUNK_SIZE, userIds.size())));
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
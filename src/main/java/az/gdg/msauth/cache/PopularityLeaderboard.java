@@ -0,0 +1,153 @@
+package az.gdg.msauth.cache;
+
+import az.gdg.msauth.dao.UserRepository;
+import az.gdg.msauth.mapper.UserMapper;
+import az.gdg.msauth.model.dto.UserDetail;
+import az.gdg.msauth.model.dto.UserPopularity;
+import az.gdg.msauth.model.entity.UserEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// top users by popularity, kept up to date by popularity increments instead of sorting users table on each read.
+// Each instance sees only its own increments, so it is rebuilt from database periodically to pick up the others
+@Component
+public class PopularityLeaderboard {
+
+    private static final Logger logger = LoggerFactory.getLogger(PopularityLeaderboard.class);
+    private static final Comparator<Entry> ORDER = Comparator.comparingLong(Entry::getPopularity).reversed()
+            .thenComparing(entry -> entry.getUserDetail().getId());
+
+    private final UserRepository userRepository;
+    private final int size;
+
+    // guarded by this, sorted by ORDER
+    private final List<Entry> entries = new ArrayList<>();
+
+    // readers get an immutable copy without locking
+    private volatile List<UserDetail> topUsers = Collections.emptyList();
+    private volatile boolean warmedUp;
+
+    public PopularityLeaderboard(UserRepository userRepository,
+                                 @Value("${user.popularUsersCount:3}") int size) {
+        this.userRepository = userRepository;
+        this.size = size;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${user.leaderboardRebuildInterval:60000}",
+            initialDelayString = "${user.leaderboardRebuildInterval:60000}")
+    public synchronized void rebuild() {
+        logger.info("CacheLog.rebuildLeaderboard.start");
+        List<UserEntity> users = userRepository.findAllByOrderByPopularityDesc(PageRequest.of(0, size));
+
+        entries.clear();
+        users.forEach(user -> entries.add(new Entry(UserMapper.INSTANCE.entityToDto(user), user.getPopularity())));
+        entries.sort(ORDER);
+        publish();
+        warmedUp = true;
+        logger.info("CacheLog.rebuildLeaderboard.stop.success.size : {}", entries.size());
+    }
+
+    public List<UserDetail> getTopUsers() {
+        return topUsers;
+    }
+
+    public boolean isWarmedUp() {
+        return warmedUp;
+    }
+
+    public synchronized void offer(UserDetail userDetail, long popularity) {
+        entries.removeIf(entry -> entry.getUserDetail().getId().equals(userDetail.getId()));
+
+        if (entries.size() < size || popularity > entries.get(entries.size() - 1).getPopularity()) {
+            entries.add(new Entry(userDetail, popularity));
+            entries.sort(ORDER);
+            if (entries.size() > size) {
+                entries.remove(entries.size() - 1);
+            }
+        }
+        publish();
+    }
+
+    // users who are already on leaderboard keep their details and get the new popularity,
+    // ids of the other users whose popularity is enough to enter leaderboard are returned
+    public synchronized List<Long> updatePopularities(List<UserPopularity> popularities) {
+        List<UserPopularity> others = new ArrayList<>();
+        for (UserPopularity popularity : popularities) {
+            int index = indexOf(popularity.getId());
+            if (index >= 0) {
+                entries.set(index, new Entry(entries.get(index).getUserDetail(), popularity.getPopularity()));
+            } else {
+                others.add(popularity);
+            }
+        }
+        entries.sort(ORDER);
+        publish();
+
+        List<Long> candidates = new ArrayList<>();
+        for (UserPopularity popularity : others) {
+            if (entries.size() < size || popularity.getPopularity() > entries.get(entries.size() - 1).getPopularity()) {
+                candidates.add(popularity.getId());
+            }
+        }
+        return candidates;
+    }
+
+    // keeps names and image of users who are already on leaderboard up to date
+    public synchronized void updateUserDetail(UserDetail userDetail) {
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            if (entry.getUserDetail().getId().equals(userDetail.getId())) {
+                entries.set(i, new Entry(userDetail, entry.getPopularity()));
+                publish();
+                return;
+            }
+        }
+    }
+
+    private int indexOf(Long userId) {
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).getUserDetail().getId().equals(userId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void publish() {
+        topUsers = Collections.unmodifiableList(entries.stream()
+                .map(Entry::getUserDetail)
+                .collect(Collectors.toList()));
+    }
+
+    private static class Entry {
+
+        private final UserDetail userDetail;
+        private final long popularity;
+
+        Entry(UserDetail userDetail, long popularity) {
+            this.userDetail = userDetail;
+            this.popularity = popularity;
+        }
+
+        UserDetail getUserDetail() {
+            return userDetail;
+        }
+
+        long getPopularity() {
+            return popularity;
+        }
+    }
+}
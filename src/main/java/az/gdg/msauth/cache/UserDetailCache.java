@@ -0,0 +1,59 @@
+package az.gdg.msauth.cache;
+
+import az.gdg.msauth.model.dto.UserDetail;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// typed access to the userDetails cache of cache manager, see CacheConfig
+public class UserDetailCache {
+
+    private final Cache<Long, UserDetail> userDetails;
+
+    public UserDetailCache(Cache<Long, UserDetail> userDetails) {
+        this.userDetails = userDetails;
+    }
+
+    public UserDetail get(Long userId, Function<Long, UserDetail> loader) {
+        return userDetails.get(userId, loader);
+    }
+
+    // hits are served from cache, all misses are given to loader at once
+    public Map<Long, UserDetail> getAll(Collection<Long> userIds,
+                                       Function<List<Long>, Map<Long, UserDetail>> loader) {
+        Map<Long, UserDetail> result = new HashMap<>(userDetails.getAllPresent(userIds));
+
+        List<Long> missingIds = userIds.stream()
+                .filter(userId -> !result.containsKey(userId))
+                .collect(Collectors.toList());
+
+        if (!missingIds.isEmpty()) {
+            Map<Long, UserDetail> loaded = loader.apply(missingIds);
+            userDetails.putAll(loaded);
+            result.putAll(loaded);
+        }
+        return result;
+    }
+
+    public void evict(Long userId) {
+        userDetails.invalidate(userId);
+    }
+
+    public double getHitRate() {
+        return userDetails.stats().hitRate();
+    }
+
+    public long getEvictionCount() {
+        return userDetails.stats().evictionCount();
+    }
+
+    public CacheStats getStats() {
+        return userDetails.stats();
+    }
+}
@@ -0,0 +1,29 @@
+package az.gdg.msauth.cache;
+
+import az.gdg.msauth.dao.UserRepository;
+import az.gdg.msauth.mapper.UserMapper;
+import az.gdg.msauth.model.dto.UserDetail;
+import org.springframework.stereotype.Component;
+
+// reloads user details in background when refreshAfterWrite is configured for userDetails cache
+@Component
+public class UserDetailCacheLoader implements NamedCacheLoader<Long, UserDetail> {
+
+    private final UserRepository userRepository;
+
+    public UserDetailCacheLoader(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public String cacheName() {
+        return CacheNames.USER_DETAILS;
+    }
+
+    @Override
+    public UserDetail load(Long userId) {
+        return userRepository.findById(userId)
+                .map(UserMapper.INSTANCE::entityToDto)
+                .orElse(null);
+    }
+}
@@ -1,33 +1,88 @@
 package az.gdg.msauth.config;
 
+import az.gdg.msauth.cache.CacheNames;
+import az.gdg.msauth.cache.NamedCacheLoader;
+import az.gdg.msauth.cache.UserDetailCache;
+import az.gdg.msauth.config.CacheSpecProperties.CacheSpec;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Configuration
 @EnableCaching
-@EnableScheduling
+@EnableConfigurationProperties(CacheSpecProperties.class)
 public class CacheConfig {
 
     private static final Logger logger = LoggerFactory.getLogger(CacheConfig.class);
-    private final CacheManager cacheManager;
 
-    public CacheConfig(CacheManager cacheManager) {
-        this.cacheManager = cacheManager;
+    @Bean
+    public CacheManager cacheManager(CacheSpecProperties cacheSpecProperties,
+                                     ObjectProvider<NamedCacheLoader<?, ?>> cacheLoaders) {
+        Map<String, CacheLoader<?, ?>> loaders = loadersByCacheName(cacheLoaders);
+
+        List<CaffeineCache> caches = cacheSpecProperties.getSpecs().entrySet().stream()
+                .map(spec -> buildCache(spec.getKey(), spec.getValue(), loaders.get(spec.getKey())))
+                .collect(Collectors.toList());
+
+        SimpleCacheManager cacheManager = new SimpleCacheManager() {
+            @Override
+            protected org.springframework.cache.Cache getMissingCache(String name) {
+                return buildCache(name, cacheSpecProperties.getDefaults(), loaders.get(name));
+            }
+        };
+        cacheManager.setCaches(caches);
+        return cacheManager;
     }
 
-    @Scheduled(cron = "0 59 23 * * ?")  // at 23:59 every day
-    public void clearCacheSchedule() {
-        logger.info("Config.clearCacheSchedule.start");
-        for (String name : cacheManager.getCacheNames()) {
-            cacheManager.getCache(name).clear();
-        }
+    @Bean
+    @SuppressWarnings("unchecked")
+    public UserDetailCache userDetailCache(CacheManager cacheManager) {
+        CaffeineCache cache = (CaffeineCache) cacheManager.getCache(CacheNames.USER_DETAILS);
+        return new UserDetailCache((Cache) cache.getNativeCache());
+    }
 
-        logger.info("Config.clearCacheSchedule.stop.success");
+    // a cache has at most one loader, it is matched by cacheName() of the loader
+    private static Map<String, CacheLoader<?, ?>> loadersByCacheName(
+            ObjectProvider<NamedCacheLoader<?, ?>> cacheLoaders) {
+        Map<String, CacheLoader<?, ?>> loaders = new HashMap<>();
+        cacheLoaders.orderedStream().forEach(loader -> {
+            if (loaders.putIfAbsent(loader.cacheName(), loader) != null) {
+                throw new IllegalStateException("More than one loader for cache " + loader.cacheName());
+            }
+        });
+        return loaders;
+    }
+
+    @SuppressWarnings("unchecked")
+    private CaffeineCache buildCache(String name, CacheSpec spec, CacheLoader<?, ?> loader) {
+        logger.info("Config.buildCache.name : {}, spec : {}", name, spec);
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(spec.getMaximumSize())
+                .expireAfterWrite(spec.getExpireAfterWrite())
+                .recordStats();
 
+        if (loader == null) {
+            return new CaffeineCache(name, builder.build());
+        }
+
+        if (spec.getRefreshAfterWrite() != null) {
+            builder.refreshAfterWrite(spec.getRefreshAfterWrite());
+        }
+        return new CaffeineCache(name, builder.build((CacheLoader<Object, Object>) loader));
     }
 }
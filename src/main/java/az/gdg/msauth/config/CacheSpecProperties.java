@@ -0,0 +1,29 @@
+package az.gdg.msauth.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "cache")
+public class CacheSpecProperties {
+
+    // used for caches which don't have their own spec
+    private CacheSpec defaults = new CacheSpec();
+
+    private Map<String, CacheSpec> specs = new HashMap<>();
+
+    @Data
+    public static class CacheSpec {
+
+        private long maximumSize = 1000;
+
+        private Duration expireAfterWrite = Duration.ofMinutes(10);
+
+        // applied only to caches which have a loader, stale entries are reloaded in background
+        private Duration refreshAfterWrite;
+    }
+}
@@ -0,0 +1,78 @@
+package az.gdg.msauth.config;
+
+import az.gdg.msauth.datasource.ReplicaLagMonitor;
+import az.gdg.msauth.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseDataSource;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+// enabled by datasource.routing.enabled, otherwise the single spring.datasource pool is auto configured.
+// both pools are tuned and instrumented by HikariPoolPostProcessor
+@Configuration
+@ConditionalOnProperty(prefix = "datasource.routing", name = "enabled", havingValue = "true")
+public class DataSourceConfig {
+
+    @Bean
+    @LiquibaseDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                               @Value("${datasource.routing.maxLag:10s}") Duration maxLag,
+                                               @Value("${datasource.routing.lagQuery:show slave status}")
+                                                       String lagQuery,
+                                               @Value("${datasource.routing.lagColumn:Seconds_Behind_Master}")
+                                                       String lagColumn,
+                                               MeterRegistry meterRegistry) {
+        ReplicaLagMonitor replicaLagMonitor = new ReplicaLagMonitor(replicaDataSource, maxLag, lagQuery, lagColumn);
+        Gauge.builder("datasource.replica.lag", replicaLagMonitor, ReplicaLagMonitor::getLagSeconds)
+                .description("Replication lag of replica in seconds, -1 if replication isn't running")
+                .register(meterRegistry);
+        Gauge.builder("datasource.replica.available", replicaLagMonitor,
+                monitor -> monitor.isReplicaAvailable() ? 1 : 0)
+                .register(meterRegistry);
+        return replicaLagMonitor;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 ReplicaLagMonitor replicaLagMonitor,
+                                 MeterRegistry meterRegistry) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource,
+                replicaLagMonitor, meterRegistry));
+    }
+}
@@ -0,0 +1,22 @@
+package az.gdg.msauth.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+@Configuration
+public class DataSourcePoolConfig {
+
+    // post processors are created before configuration properties binding, so pool properties are bound here
+    @Bean
+    public static HikariPoolPostProcessor hikariPoolPostProcessor(Environment environment,
+                                                                  ObjectProvider<MeterRegistry> meterRegistry) {
+        DataSourcePoolProperties poolProperties = Binder.get(environment)
+                .bind("datasource.pool", DataSourcePoolProperties.class)
+                .orElseGet(DataSourcePoolProperties::new);
+        return new HikariPoolPostProcessor(poolProperties, meterRegistry);
+    }
+}
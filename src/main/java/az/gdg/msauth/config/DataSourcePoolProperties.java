@@ -0,0 +1,39 @@
+package az.gdg.msauth.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// defaults for every hikari pool, primary and replica alike, values set in the pool's own properties win
+@Data
+public class DataSourcePoolProperties {
+
+    // 0 means derived from cores, see HikariPoolPostProcessor
+    private int maximumPoolSize;
+
+    // negative means same as maximum pool size, so the pool doesn't grow and shrink under load
+    private int minimumIdle = -1;
+
+    private Duration connectionTimeout = Duration.ofSeconds(5);
+
+    private Duration maxLifetime = Duration.ofMinutes(30);
+
+    // mysql driver settings, statement caching on server side and rewriting batches into multi value statements
+    private Map<String, String> driverProperties = defaultDriverProperties();
+
+    private static Map<String, String> defaultDriverProperties() {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("cachePrepStmts", "true");
+        properties.put("prepStmtCacheSize", "250");
+        properties.put("prepStmtCacheSqlLimit", "2048");
+        properties.put("useServerPrepStmts", "true");
+        properties.put("rewriteBatchedStatements", "true");
+        properties.put("cacheResultSetMetadata", "true");
+        properties.put("cacheServerConfiguration", "true");
+        properties.put("elideSetAutoCommits", "true");
+        properties.put("maintainTimeStats", "false");
+        return properties;
+    }
+}
@@ -0,0 +1,22 @@
+package az.gdg.msauth.config;
+
+import az.gdg.msauth.health.HealthCachePostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+@Configuration
+public class HealthConfig {
+
+    // probes are polled often, so dependencies are checked at most once per health.cacheTimeToLive
+    @Bean
+    public static HealthCachePostProcessor healthCachePostProcessor(Environment environment) {
+        Duration timeToLive = Binder.get(environment)
+                .bind("health.cacheTimeToLive", Duration.class)
+                .orElse(Duration.ofSeconds(5));
+        return new HealthCachePostProcessor(timeToLive);
+    }
+}
@@ -0,0 +1,70 @@
+package az.gdg.msauth.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+// fills datasource.pool defaults into every hikari pool after its spring.datasource.hikari / datasource.replica
+// properties are bound, values set there are kept
+public class HikariPoolPostProcessor implements BeanPostProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(HikariPoolPostProcessor.class);
+    private static final HikariConfig DEFAULTS = new HikariConfig();
+
+    private final DataSourcePoolProperties poolProperties;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public HikariPoolPostProcessor(DataSourcePoolProperties poolProperties,
+                                   ObjectProvider<MeterRegistry> meterRegistry) {
+        this.poolProperties = poolProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof HikariDataSource)) {
+            return bean;
+        }
+
+        HikariDataSource dataSource = (HikariDataSource) bean;
+        // values which are still hikari defaults weren't set by spring.datasource.hikari / datasource.replica
+        if (dataSource.getMaximumPoolSize() == DEFAULTS.getMaximumPoolSize()) {
+            dataSource.setMaximumPoolSize(maximumPoolSize());
+        }
+        if (dataSource.getMinimumIdle() == DEFAULTS.getMinimumIdle()) {
+            dataSource.setMinimumIdle(poolProperties.getMinimumIdle() < 0 ? dataSource.getMaximumPoolSize() :
+                    poolProperties.getMinimumIdle());
+        }
+        if (dataSource.getConnectionTimeout() == DEFAULTS.getConnectionTimeout()) {
+            dataSource.setConnectionTimeout(poolProperties.getConnectionTimeout().toMillis());
+        }
+        if (dataSource.getMaxLifetime() == DEFAULTS.getMaxLifetime()) {
+            dataSource.setMaxLifetime(poolProperties.getMaxLifetime().toMillis());
+        }
+        poolProperties.getDriverProperties().forEach((name, value) ->
+                dataSource.getDataSourceProperties().putIfAbsent(name, value));
+
+        // exports pool usage, pending threads and connection acquire time per pool name
+        if (dataSource.getMetricRegistry() == null && dataSource.getMetricsTrackerFactory() == null) {
+            meterRegistry.ifAvailable(registry ->
+                    dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+        }
+
+        logger.info("Config.hikariPool.poolName : {}, maximumPoolSize : {}", dataSource.getPoolName(),
+                dataSource.getMaximumPoolSize());
+        return dataSource;
+    }
+
+    // connections = cores * 2 + 1, threads waiting on io leave the cores to the others
+    private int maximumPoolSize() {
+        if (poolProperties.getMaximumPoolSize() > 0) {
+            return poolProperties.getMaximumPoolSize();
+        }
+        return Runtime.getRuntime().availableProcessors() * 2 + 1;
+    }
+}
@@ -3,6 +3,11 @@ package az.gdg.msauth.controller;
 import io.swagger.annotations.ApiOperation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.HealthComponent;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -15,11 +20,24 @@ import org.springframework.web.bind.annotation.RestController;
 public class AlarmController {
 
     private static final Logger logger = LoggerFactory.getLogger(AlarmController.class);
+    private static final String READINESS_GROUP = "readiness";
 
+    private final HealthEndpoint healthEndpoint;
 
+    public AlarmController(HealthEndpoint healthEndpoint) {
+        this.healthEndpoint = healthEndpoint;
+    }
+
+    // kept for ms-alarm, same checks as /actuator/health/readiness. Endpoint isn't authenticated,
+    // so only the status is returned, details of the checks stay in health endpoint
     @ApiOperation(value = "Method will be called by ms-alarm")
     @GetMapping
-    public void alarm() {
-        logger.info("ActionLog.ms-auth.start");
+    public ResponseEntity<Status> alarm() {
+        logger.debug("ActionLog.ms-auth.start");
+        HealthComponent health = healthEndpoint.healthForPath(READINESS_GROUP);
+        Status healthStatus = health != null ? health.getStatus() : Status.UNKNOWN;
+        HttpStatus status = Status.UP.equals(healthStatus) ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
+        logger.debug("ActionLog.ms-auth.stop.status : {}", status);
+        return ResponseEntity.status(status).body(healthStatus);
     }
 }
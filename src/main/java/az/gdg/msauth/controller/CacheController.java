@@ -0,0 +1,43 @@
+package az.gdg.msauth.controller;
+
+import az.gdg.msauth.model.dto.CacheStatsDTO;
+import az.gdg.msauth.service.CacheService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/cache")
+@CrossOrigin(exposedHeaders = "Access-Control-Allow-Origin")
+@Api("Cache Controller")
+public class CacheController {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheController.class);
+    private final CacheService cacheService;
+
+    public CacheController(CacheService cacheService) {
+        this.cacheService = cacheService;
+    }
+
+    @ApiOperation("get statistics of all caches")
+    @GetMapping("/stats")
+    public List<CacheStatsDTO> getCacheStats() {
+        logger.debug("getCacheStats start");
+        return cacheService.getCacheStats();
+    }
+
+    @ApiOperation("get statistics of cache by name")
+    @GetMapping("/stats/{name}")
+    public CacheStatsDTO getCacheStats(@PathVariable("name") String name) {
+        logger.debug("getCacheStats start : name {}", name);
+        return cacheService.getCacheStats(name);
+    }
+}
@@ -0,0 +1,49 @@
+package az.gdg.msauth.dao;
+
+import az.gdg.msauth.model.entity.MailOutboxEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MailOutboxRepository extends JpaRepository<MailOutboxEntity, Long> {
+
+    // lock timeout -2 is rendered as for update skip locked by MySQL8Dialect, so relays of other instances
+    // skip rows which are being claimed instead of waiting for them. It needs MySQL 8.0, 5.7 rejects the query
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("select m from MailOutboxEntity m where m.sentAt is null and " +
+            "(m.claimedUntil is null or m.claimedUntil < :now) order by m.id asc")
+    List<MailOutboxEntity> findClaimable(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Modifying
+    @Query("update MailOutboxEntity m set m.claimedUntil = :claimedUntil where m.id in :ids")
+    int claim(@Param("ids") Collection<Long> ids, @Param("claimedUntil") LocalDateTime claimedUntil);
+
+    // claim is dropped, so rows which weren't confirmed are claimed again on next poll
+    @Modifying
+    @Query("update MailOutboxEntity m set m.claimedUntil = null where m.id in :ids")
+    int release(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("update MailOutboxEntity m set m.sentAt = :sentAt, m.claimedUntil = null where m.id in :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("sentAt") LocalDateTime sentAt);
+
+    @Query("select count(m) from MailOutboxEntity m where m.sentAt is null")
+    long countPending();
+
+    @Modifying
+    @Query("delete from MailOutboxEntity m where m.sentAt < :before")
+    int deleteSentBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,10 @@
+package az.gdg.msauth.dao;
+
+import az.gdg.msauth.model.entity.TokenRevocationEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TokenRevocationRepository extends JpaRepository<TokenRevocationEntity, String> {
+
+}
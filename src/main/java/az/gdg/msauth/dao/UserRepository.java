@@ -1,18 +1,64 @@
 package az.gdg.msauth.dao;
 
+import az.gdg.msauth.model.dto.UserDetail;
+import az.gdg.msauth.model.dto.UserPopularity;
 import az.gdg.msauth.model.entity.UserEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface UserRepository extends JpaRepository<UserEntity, Long> {
+public interface UserRepository extends JpaRepository<UserEntity, Long>, UserRepositoryCustom {
 
     UserEntity findByMail(String mail);
 
-    List<UserEntity> findFirst3ByOrderByPopularityDesc();
+    List<UserEntity> findAllByOrderByPopularityDesc(Pageable pageable);
 
-    List<UserEntity> findByIdIn(List<Integer> userIds);
+    @Transactional(readOnly = true)
+    @Query("select new az.gdg.msauth.model.dto.UserDetail(u.id, u.firstName, u.lastName, u.imageUrl) " +
+            "from UserEntity u where u.id in :ids")
+    List<UserDetail> findUserDetailsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select new az.gdg.msauth.model.dto.UserPopularity(u.id, u.popularity) " +
+            "from UserEntity u where u.id in :ids")
+    List<UserPopularity> findPopularitiesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Modifying
+    @Query("update UserEntity u set u.password = :password where u.mail = :mail")
+    int updatePassword(@Param("mail") String mail, @Param("password") String password);
+
+    // counters of a previous quota day are reset to the daily counts before decreasing
+    @Transactional
+    @Modifying
+    @Query(value = "update users set " +
+            "remaining_quack_count = " +
+            "case when quota_day = :today then remaining_quack_count else :quackCount end - 1, " +
+            "remaining_hate_count = case when quota_day = :today then remaining_hate_count else :hateCount end, " +
+            "quota_day = :today " +
+            "where id = :id and (quota_day is null or quota_day <> :today or remaining_quack_count > 0)",
+            nativeQuery = true)
+    int decreaseRemainingQuackCount(@Param("id") Long id, @Param("today") LocalDate today,
+                                    @Param("quackCount") Integer quackCount, @Param("hateCount") Integer hateCount);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update users set " +
+            "remaining_quack_count = case when quota_day = :today then remaining_quack_count else :quackCount end, " +
+            "remaining_hate_count = " +
+            "case when quota_day = :today then remaining_hate_count else :hateCount end - 1, " +
+            "quota_day = :today " +
+            "where id = :id and (quota_day is null or quota_day <> :today or remaining_hate_count > 0)",
+            nativeQuery = true)
+    int decreaseRemainingHateCount(@Param("id") Long id, @Param("today") LocalDate today,
+                                   @Param("quackCount") Integer quackCount, @Param("hateCount") Integer hateCount);
 }
 
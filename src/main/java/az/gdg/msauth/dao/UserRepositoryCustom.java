@@ -0,0 +1,8 @@
+package az.gdg.msauth.dao;
+
+import java.util.Map;
+
+public interface UserRepositoryCustom {
+
+    void addPopularities(Map<Long, Long> popularityIncrements);
+}
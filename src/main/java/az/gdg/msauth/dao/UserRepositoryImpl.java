@@ -0,0 +1,30 @@
+package az.gdg.msauth.dao;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    private static final String ADD_POPULARITY = "update users set popularity = popularity + ? where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // one transaction for the whole batch, a failed batch leaves no increment written
+    @Override
+    @Transactional
+    public void addPopularities(Map<Long, Long> popularityIncrements) {
+        List<Object[]> batchArgs = popularityIncrements.entrySet().stream()
+                .map(increment -> new Object[]{increment.getValue(), increment.getKey()})
+                .collect(Collectors.toList());
+
+        jdbcTemplate.batchUpdate(ADD_POPULARITY, batchArgs);
+    }
+}
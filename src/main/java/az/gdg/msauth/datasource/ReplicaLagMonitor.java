@@ -0,0 +1,60 @@
+package az.gdg.msauth.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+// replica is used for reads only while it is reachable and its replication lag is under the limit
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final JdbcTemplate replica;
+    private final Duration maxLag;
+    private final String lagQuery;
+    private final String lagColumn;
+    private volatile boolean replicaAvailable;
+    private volatile long lagSeconds = -1;
+
+    public ReplicaLagMonitor(DataSource replica, Duration maxLag, String lagQuery, String lagColumn) {
+        this.replica = new JdbcTemplate(replica);
+        this.maxLag = maxLag;
+        this.lagQuery = lagQuery;
+        this.lagColumn = lagColumn;
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.routing.lagCheckInterval:5000}")
+    public void check() {
+        boolean wasAvailable = replicaAvailable;
+        try {
+            List<Map<String, Object>> rows = replica.queryForList(lagQuery);
+            Object lag = rows.isEmpty() ? null : rows.get(0).get(lagColumn);
+            // no row or null lag means replication isn't running
+            lagSeconds = lag == null ? -1 : Long.parseLong(lag.toString());
+            replicaAvailable = lagSeconds >= 0 && lagSeconds <= maxLag.getSeconds();
+        } catch (DataAccessException | NumberFormatException e) {
+            lagSeconds = -1;
+            replicaAvailable = false;
+            logger.warn("Config.checkReplicaLag.error : {}", e.getMessage());
+        }
+
+        if (wasAvailable != replicaAvailable) {
+            logger.warn("Config.checkReplicaLag.replicaAvailable : {}, lagSeconds : {}", replicaAvailable, lagSeconds);
+        }
+    }
+
+    public boolean isReplicaAvailable() {
+        return replicaAvailable;
+    }
+
+    public long getLagSeconds() {
+        return lagSeconds;
+    }
+}
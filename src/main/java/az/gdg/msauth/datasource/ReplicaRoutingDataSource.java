@@ -0,0 +1,62 @@
+package az.gdg.msauth.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+// read only transactions go to replica, everything else and reads during replica lag go to primary.
+// it must be wrapped into LazyConnectionDataSourceProxy, so the connection is taken after read only flag is set
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    private final ReplicaLagMonitor replicaLagMonitor;
+    private final Counter primaryCounter;
+    private final Counter replicaCounter;
+    private final Counter fallbackCounter;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor replicaLagMonitor,
+                                    MeterRegistry meterRegistry) {
+        this.replicaLagMonitor = replicaLagMonitor;
+        this.primaryCounter = routeCounter(meterRegistry, Target.PRIMARY, false);
+        this.replicaCounter = routeCounter(meterRegistry, Target.REPLICA, false);
+        this.fallbackCounter = routeCounter(meterRegistry, Target.PRIMARY, true);
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Target.PRIMARY, primary);
+        targets.put(Target.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primaryCounter.increment();
+            return Target.PRIMARY;
+        }
+        if (!replicaLagMonitor.isReplicaAvailable()) {
+            fallbackCounter.increment();
+            return Target.PRIMARY;
+        }
+        replicaCounter.increment();
+        return Target.REPLICA;
+    }
+
+    private static Counter routeCounter(MeterRegistry meterRegistry, Target target, boolean fallback) {
+        return Counter.builder("datasource.routing")
+                .description("Connections routed to primary or replica pool")
+                .tag("pool", target.name().toLowerCase())
+                .tag("fallback", String.valueOf(fallback))
+                .register(meterRegistry);
+    }
+}
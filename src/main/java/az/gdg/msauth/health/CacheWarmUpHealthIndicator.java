@@ -0,0 +1,27 @@
+package az.gdg.msauth.health;
+
+import az.gdg.msauth.cache.PopularityLeaderboard;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.stereotype.Component;
+
+// instance isn't ready until leaderboard is loaded, otherwise popular users would be served empty
+@Component
+public class CacheWarmUpHealthIndicator extends AbstractHealthIndicator {
+
+    private final PopularityLeaderboard popularityLeaderboard;
+
+    public CacheWarmUpHealthIndicator(PopularityLeaderboard popularityLeaderboard) {
+        super("Cache warm up health check failed");
+        this.popularityLeaderboard = popularityLeaderboard;
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        if (popularityLeaderboard.isWarmedUp()) {
+            builder.up().withDetail("leaderboardSize", popularityLeaderboard.getTopUsers().size());
+        } else {
+            builder.outOfService().withDetail("leaderboard", "loading");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package az.gdg.msauth.health;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// keeps result of delegate for a short time, while one caller refreshes an expired result the others get the last one
+public class CachedHealthIndicator implements HealthIndicator {
+
+    static final String LATENCY_DETAIL = "latencyMs";
+    static final String CHECKED_AT_DETAIL = "checkedAt";
+
+    private final HealthIndicator delegate;
+    private final long timeToLiveNanos;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile CachedHealth cached;
+
+    public CachedHealthIndicator(HealthIndicator delegate, Duration timeToLive) {
+        this.delegate = delegate;
+        this.timeToLiveNanos = timeToLive.toNanos();
+    }
+
+    @Override
+    public Health health() {
+        CachedHealth current = cached;
+        if (current != null && System.nanoTime() - current.checkedAt < timeToLiveNanos) {
+            return current.health;
+        }
+
+        boolean owner = refreshing.compareAndSet(false, true);
+        if (!owner && current != null) {
+            return current.health;
+        }
+        try {
+            current = check();
+            cached = current;
+            return current.health;
+        } finally {
+            if (owner) {
+                refreshing.set(false);
+            }
+        }
+    }
+
+    private CachedHealth check() {
+        long start = System.nanoTime();
+        Health health;
+        try {
+            health = delegate.health();
+        } catch (RuntimeException e) {
+            health = Health.down(e).build();
+        }
+        long checkedAt = System.nanoTime();
+
+        Health timed = Health.status(health.getStatus())
+                .withDetails(health.getDetails())
+                .withDetail(LATENCY_DETAIL, Math.round((checkedAt - start) / 1000.0) / 1000.0)
+                .withDetail(CHECKED_AT_DETAIL, Instant.now().toString())
+                .build();
+        return new CachedHealth(timed, checkedAt);
+    }
+
+    private static class CachedHealth {
+
+        private final Health health;
+        private final long checkedAt;
+
+        CachedHealth(Health health, long checkedAt) {
+            this.health = health;
+            this.checkedAt = checkedAt;
+        }
+    }
+}
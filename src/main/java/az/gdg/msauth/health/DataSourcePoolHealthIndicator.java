@@ -0,0 +1,51 @@
+package az.gdg.msauth.health;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// connection itself is checked by db indicator, this one reports state of every hikari pool
+@Component
+public class DataSourcePoolHealthIndicator extends AbstractHealthIndicator {
+
+    private final ObjectProvider<HikariDataSource> dataSources;
+
+    public DataSourcePoolHealthIndicator(ObjectProvider<HikariDataSource> dataSources) {
+        super("Data source pool health check failed");
+        this.dataSources = dataSources;
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        builder.up();
+        dataSources.orderedStream().forEach(dataSource -> checkPool(builder, dataSource));
+    }
+
+    private static void checkPool(Health.Builder builder, HikariDataSource dataSource) {
+        if (dataSource.isClosed()) {
+            builder.down().withDetail(dataSource.getPoolName(), "closed");
+            return;
+        }
+
+        // pools are started on first connection
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            builder.withDetail(dataSource.getPoolName(), "not started");
+            return;
+        }
+
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("active", pool.getActiveConnections());
+        details.put("idle", pool.getIdleConnections());
+        details.put("total", pool.getTotalConnections());
+        details.put("max", dataSource.getMaximumPoolSize());
+        details.put("pending", pool.getThreadsAwaitingConnection());
+        builder.withDetail(dataSource.getPoolName(), details);
+    }
+}
@@ -0,0 +1,80 @@
+package az.gdg.msauth.health;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.actuate.health.CompositeHealthContributor;
+import org.springframework.boot.actuate.health.HealthContributor;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.NamedContributor;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// wraps every health indicator, including auto configured db and rabbit ones, into CachedHealthIndicator
+public class HealthCachePostProcessor implements BeanPostProcessor {
+
+    private final Duration timeToLive;
+
+    public HealthCachePostProcessor(Duration timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof HealthContributor) {
+            return wrap((HealthContributor) bean);
+        }
+        return bean;
+    }
+
+    private HealthContributor wrap(HealthContributor contributor) {
+        if (contributor instanceof HealthIndicator && !(contributor instanceof CachedHealthIndicator)) {
+            return new CachedHealthIndicator((HealthIndicator) contributor, timeToLive);
+        }
+        if (contributor instanceof CompositeHealthContributor &&
+                !(contributor instanceof CachedCompositeHealthContributor)) {
+            return new CachedCompositeHealthContributor((CompositeHealthContributor) contributor);
+        }
+        return contributor;
+    }
+
+    // members of composites such as binders are looked up on each call, so they are wrapped on first use
+    private class CachedCompositeHealthContributor implements CompositeHealthContributor {
+
+        private final CompositeHealthContributor delegate;
+        private final Map<String, HealthContributor> contributors = new ConcurrentHashMap<>();
+
+        CachedCompositeHealthContributor(CompositeHealthContributor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public HealthContributor getContributor(String name) {
+            HealthContributor contributor = delegate.getContributor(name);
+            return contributor != null ? cached(name, contributor) : null;
+        }
+
+        @Override
+        public Iterator<NamedContributor<HealthContributor>> iterator() {
+            Iterator<NamedContributor<HealthContributor>> iterator = delegate.iterator();
+            return new Iterator<NamedContributor<HealthContributor>>() {
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public NamedContributor<HealthContributor> next() {
+                    NamedContributor<HealthContributor> next = iterator.next();
+                    return NamedContributor.of(next.getName(), cached(next.getName(), next.getContributor()));
+                }
+            };
+        }
+
+        private HealthContributor cached(String name, HealthContributor contributor) {
+            return contributors.computeIfAbsent(name, key -> wrap(contributor));
+        }
+    }
+}
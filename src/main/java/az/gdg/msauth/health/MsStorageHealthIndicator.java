@@ -0,0 +1,54 @@
+package az.gdg.msauth.health;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+// ms-storage has no health endpoint, any response from base url below 500 means it is reachable
+@Component
+public class MsStorageHealthIndicator extends AbstractHealthIndicator {
+
+    private final URI uri;
+    private final Duration timeout;
+    private final HttpClient httpClient;
+
+    public MsStorageHealthIndicator(@Value("${service.url.ms-storage}") String url,
+                                    @Value("${health.msStorage.timeout:1s}") Duration timeout) {
+        super("ms-storage health check failed");
+        this.uri = URI.create(url);
+        this.timeout = timeout;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .timeout(timeout)
+                .build();
+
+        HttpResponse<Void> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+
+        builder.withDetail("url", uri.toString()).withDetail("status", response.statusCode());
+        if (response.statusCode() < 500) {
+            builder.up();
+        } else {
+            builder.down();
+        }
+    }
+}
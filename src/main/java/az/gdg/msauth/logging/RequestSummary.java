@@ -0,0 +1,86 @@
+package az.gdg.msauth.logging;
+
+// per request timings collected into preallocated arrays, one instance is reused per worker thread.
+// Phases overlap, e.g. service includes the db and mail time of the service call
+public final class RequestSummary {
+
+    public static final String AUTH = "auth";
+    public static final String SERVICE = "service";
+    public static final String DB = "db";
+    public static final String MAIL = "mail";
+    private static final int MAX_PHASES = 8;
+    private static final ThreadLocal<RequestSummary> CURRENT = ThreadLocal.withInitial(RequestSummary::new);
+
+    private final String[] phaseNames = new String[MAX_PHASES];
+    private final long[] phaseNanos = new long[MAX_PHASES];
+    private int phaseCount;
+    private boolean active;
+    private String userId;
+
+    private RequestSummary() {
+    }
+
+    static RequestSummary start() {
+        RequestSummary summary = CURRENT.get();
+        summary.phaseCount = 0;
+        summary.userId = null;
+        summary.active = true;
+        return summary;
+    }
+
+    static void finish() {
+        CURRENT.get().active = false;
+    }
+
+    // time of a phase which is recorded more than once, e.g. db, is summed up.
+    // phases recorded outside of a request, e.g. by scheduled jobs, are ignored
+    public static void recordPhase(String name, long startNanos) {
+        RequestSummary summary = CURRENT.get();
+        if (!summary.active) {
+            return;
+        }
+        long nanos = System.nanoTime() - startNanos;
+        for (int i = 0; i < summary.phaseCount; i++) {
+            if (summary.phaseNames[i].equals(name)) {
+                summary.phaseNanos[i] += nanos;
+                return;
+            }
+        }
+        if (summary.phaseCount < MAX_PHASES) {
+            summary.phaseNames[summary.phaseCount] = name;
+            summary.phaseNanos[summary.phaseCount] = nanos;
+            summary.phaseCount++;
+        }
+    }
+
+    public static void setUserId(String userId) {
+        RequestSummary summary = CURRENT.get();
+        if (summary.active) {
+            summary.userId = userId;
+        }
+    }
+
+    String getUserId() {
+        return userId;
+    }
+
+    void appendPhases(StringBuilder builder) {
+        for (int i = 0; i < phaseCount; i++) {
+            builder.append(' ').append(phaseNames[i]).append("Ms=");
+            appendMillis(builder, phaseNanos[i]);
+        }
+    }
+
+    static void appendMillis(StringBuilder builder, long nanos) {
+        long micros = nanos / 1000;
+        builder.append(micros / 1000).append('.');
+        long fraction = micros % 1000;
+        if (fraction < 100) {
+            builder.append('0');
+        }
+        if (fraction < 10) {
+            builder.append('0');
+        }
+        builder.append(fraction);
+    }
+}
@@ -0,0 +1,67 @@
+package az.gdg.msauth.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+// writes one summary line per request instead of start/stop lines in every layer
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestSummaryFilter extends OncePerRequestFilter {
+
+    public static final String CORRELATION_ID_HEADER = "X-Correlation-Id";
+    public static final String CORRELATION_ID = "correlationId";
+    public static final String USER_ID = "userId";
+    private static final Logger logger = LoggerFactory.getLogger("az.gdg.msauth.request");
+    private static final Pattern CORRELATION_ID_PATTERN = Pattern.compile("[A-Za-z0-9-]{1,64}");
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long start = System.nanoTime();
+        String correlationId = request.getHeader(CORRELATION_ID_HEADER);
+        // header of caller goes into logs and response, so only plain ids are kept
+        if (correlationId == null || !CORRELATION_ID_PATTERN.matcher(correlationId).matches()) {
+            correlationId = UUID.randomUUID().toString();
+        }
+        MDC.put(CORRELATION_ID, correlationId);
+        response.setHeader(CORRELATION_ID_HEADER, correlationId);
+        RequestSummary summary = RequestSummary.start();
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (logger.isInfoEnabled()) {
+                logger.info(format(request, response, summary, System.nanoTime() - start));
+            }
+            RequestSummary.finish();
+            MDC.remove(CORRELATION_ID);
+            MDC.remove(USER_ID);
+        }
+    }
+
+    private static String format(HttpServletRequest request, HttpServletResponse response,
+                                 RequestSummary summary, long totalNanos) {
+        StringBuilder builder = new StringBuilder(128)
+                .append("RequestLog.summary method=").append(request.getMethod())
+                .append(" uri=").append(request.getRequestURI())
+                .append(" status=").append(response.getStatus())
+                .append(" userId=").append(summary.getUserId())
+                .append(" totalMs=");
+        RequestSummary.appendMillis(builder, totalNanos);
+        summary.appendPhases(builder);
+        return builder.toString();
+    }
+}
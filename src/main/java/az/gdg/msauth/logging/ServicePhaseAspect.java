@@ -0,0 +1,30 @@
+package az.gdg.msauth.logging;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+// records the service phase of request summary, services called by another service are part of the outer call
+@Aspect
+@Component
+public class ServicePhaseAspect {
+
+    private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Around("execution(public * az.gdg.msauth.service.impl.*ServiceImpl.*(..)) || " +
+            "execution(public * az.gdg.msauth.security.service.impl.*ServiceImpl.*(..))")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        int[] depth = DEPTH.get();
+        long start = System.nanoTime();
+        depth[0]++;
+        try {
+            return joinPoint.proceed();
+        } finally {
+            depth[0]--;
+            if (depth[0] == 0) {
+                RequestSummary.recordPhase(RequestSummary.SERVICE, start);
+            }
+        }
+    }
+}
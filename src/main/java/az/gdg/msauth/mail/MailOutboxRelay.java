@@ -0,0 +1,187 @@
+package az.gdg.msauth.mail;
+
+import az.gdg.msauth.dao.MailOutboxRepository;
+import az.gdg.msauth.model.dto.MailDTO;
+import az.gdg.msauth.model.entity.MailOutboxEntity;
+import az.gdg.msauth.service.impl.MailServiceImpl;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// publishes pending outbox rows to broker. Rows are claimed for claimTimeout in a short transaction and published
+// outside of it, so no transaction or row lock is held while waiting for broker confirms.
+// Delivery is at-least-once: a row is published again if its relay stops before marking it sent,
+// consumers dedupe on mailPublishId header which is the outbox row id.
+// On shutdown pending rows are relayed until none is sent or mail.outbox.shutdownTimeout passes. It is done
+// in SmartLifecycle stop rather than @PreDestroy because stream bindings are stopped before beans are destroyed.
+@Component
+public class MailOutboxRelay implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailOutboxRelay.class);
+
+    private final MailOutboxRepository mailOutboxRepository;
+    private final MailPublisher mailPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration claimTimeout;
+    private final Duration retention;
+    private final Duration shutdownTimeout;
+    private final AtomicLong pendingCount = new AtomicLong();
+    private volatile boolean running;
+
+    public MailOutboxRelay(MailOutboxRepository mailOutboxRepository, MailPublisher mailPublisher,
+                           PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                           @Value("${mail.outbox.batchSize:50}") int batchSize,
+                           @Value("${mail.outbox.claimTimeout:1m}") Duration claimTimeout,
+                           @Value("${mail.outbox.retention:7d}") Duration retention,
+                           @Value("${mail.outbox.shutdownTimeout:30s}") Duration shutdownTimeout) {
+        this.mailOutboxRepository = mailOutboxRepository;
+        this.mailPublisher = mailPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.claimTimeout = claimTimeout;
+        this.retention = retention;
+        this.shutdownTimeout = shutdownTimeout;
+
+        Gauge.builder("mail.outbox.pending", pendingCount, AtomicLong::get)
+                .description("Mails in outbox which aren't confirmed by broker yet, as of last relay poll")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${mail.outbox.pollInterval:1000}")
+    public synchronized int relay() {
+        if (!running) {
+            return 0;
+        }
+        return relayBatch();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        logger.info("ServiceLog.drainMailOutbox.start.pending : {}", pendingCount.get());
+        long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        int sent = 1;
+        while (sent > 0 && System.nanoTime() < deadline) {
+            sent = relayBatch();
+        }
+        logger.info("ServiceLog.drainMailOutbox.stop.success.pending : {}", pendingCount.get());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Scheduled(cron = "${mail.outbox.purgeCron:0 0 3 * * *}")
+    @Transactional
+    public void purgeSent() {
+        int deleted = mailOutboxRepository.deleteSentBefore(LocalDateTime.now().minus(retention));
+        logger.info("ServiceLog.purgeSentMails.stop.success.deleted : {}", deleted);
+    }
+
+    public long getPendingCount() {
+        return pendingCount.get();
+    }
+
+    private int relayBatch() {
+        List<MailOutboxEntity> claimed = claim();
+        if (claimed.isEmpty()) {
+            pendingCount.set(mailOutboxRepository.countPending());
+            return 0;
+        }
+
+        List<CompletableFuture<Void>> confirms = new ArrayList<>(claimed.size());
+        for (MailOutboxEntity mail : claimed) {
+            confirms.add(mailPublisher.send(mail.getId().toString(), toMailDTO(mail)));
+        }
+
+        // only confirmed rows are marked, the others are released and retried on next poll
+        List<Long> sentIds = new ArrayList<>(claimed.size());
+        List<Long> failedIds = new ArrayList<>();
+        for (int i = 0; i < claimed.size(); i++) {
+            Long id = claimed.get(i).getId();
+            if (isConfirmed(confirms.get(i), id)) {
+                sentIds.add(id);
+            } else {
+                failedIds.add(id);
+            }
+        }
+
+        transactionTemplate.execute(status -> {
+            if (!sentIds.isEmpty()) {
+                mailOutboxRepository.markSent(sentIds, LocalDateTime.now());
+            }
+            if (!failedIds.isEmpty()) {
+                mailOutboxRepository.release(failedIds);
+            }
+            return null;
+        });
+        pendingCount.set(mailOutboxRepository.countPending());
+        logger.info("ServiceLog.relayMail.stop.success.sent : {}, claimed : {}", sentIds.size(), claimed.size());
+        return sentIds.size();
+    }
+
+    // rows claimed by another relay are skipped, rows of a relay which stopped are claimed again after claimTimeout
+    private List<MailOutboxEntity> claim() {
+        List<MailOutboxEntity> claimed = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<MailOutboxEntity> claimable = mailOutboxRepository
+                    .findClaimable(now, PageRequest.of(0, batchSize));
+            if (!claimable.isEmpty()) {
+                List<Long> ids = new ArrayList<>(claimable.size());
+                for (MailOutboxEntity mail : claimable) {
+                    ids.add(mail.getId());
+                }
+                mailOutboxRepository.claim(ids, now.plus(claimTimeout));
+            }
+            return claimable;
+        });
+        return claimed != null ? claimed : Collections.emptyList();
+    }
+
+    private boolean isConfirmed(CompletableFuture<Void> confirm, Long id) {
+        try {
+            confirm.get();
+            return true;
+        } catch (ExecutionException e) {
+            logger.error("ServiceLog.relayMail.error.id : {}", id, e.getCause());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private MailDTO toMailDTO(MailOutboxEntity mail) {
+        return MailDTO.builder()
+                .to(Arrays.asList(mail.getRecipients().split(MailServiceImpl.RECIPIENT_DELIMITER)))
+                .subject(mail.getSubject())
+                .body(mail.getBody())
+                .build();
+    }
+}
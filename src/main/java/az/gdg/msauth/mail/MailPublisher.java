@@ -0,0 +1,208 @@
+package az.gdg.msauth.mail;
+
+import az.gdg.msauth.exception.ExceedLimitException;
+import az.gdg.msauth.model.dto.MailDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.stream.annotation.EnableBinding;
+import org.springframework.cloud.stream.messaging.Source;
+import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.ErrorMessage;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// single publisher for mail queue, number of messages waiting for broker confirm is bounded
+@Component
+@EnableBinding(Source.class)
+public class MailPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailPublisher.class);
+    // id of outbox row, it is the same when a mail is published again, so consumers dedupe on it
+    static final String PUBLISH_ID_HEADER = "mailPublishId";
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    private final Source source;
+    private final ObjectWriter writer;
+    private final ThreadLocal<ByteArrayOutputStream> buffers =
+            ThreadLocal.withInitial(() -> new ByteArrayOutputStream(INITIAL_BUFFER_SIZE));
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final Semaphore permits;
+    private final boolean confirms;
+    private final Duration acquireTimeout;
+    private final Duration confirmTimeout;
+    private final Timer publishTimer;
+    private final Counter nackCounter;
+    private final Counter timeoutCounter;
+    private final Counter rejectCounter;
+
+    public MailPublisher(Source source, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                         @Value("${spring.cloud.stream.bindings.output.destination:mail}") String destination,
+                         @Value("${mail.publisher.maxInFlight:100}") int maxInFlight,
+                         @Value("${mail.publisher.confirms:true}") boolean confirms,
+                         @Value("${mail.publisher.acquireTimeout:5s}") Duration acquireTimeout,
+                         @Value("${mail.publisher.confirmTimeout:10s}") Duration confirmTimeout) {
+        this.source = source;
+        this.writer = objectMapper.writerFor(MailDTO.class);
+        this.permits = new Semaphore(maxInFlight);
+        this.confirms = confirms;
+        this.acquireTimeout = acquireTimeout;
+        this.confirmTimeout = confirmTimeout;
+
+        this.publishTimer = Timer.builder("mail.publish")
+                .description("Time from publish until broker confirm")
+                .tag("destination", destination)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.nackCounter = failureCounter(meterRegistry, destination, "nack");
+        this.timeoutCounter = failureCounter(meterRegistry, destination, "timeout");
+        this.rejectCounter = failureCounter(meterRegistry, destination, "rejected");
+    }
+
+    public CompletableFuture<Void> send(String publishId, MailDTO mailDTO) {
+        CompletableFuture<Void> confirm = new CompletableFuture<>();
+        if (!acquirePermit()) {
+            rejectCounter.increment();
+            confirm.completeExceptionally(new ExceedLimitException("Too many mails are waiting for confirm"));
+            return confirm;
+        }
+
+        long start = System.nanoTime();
+        if (confirms) {
+            inFlight.put(publishId, new InFlight(confirm, start));
+            confirm.orTimeout(confirmTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .whenComplete((result, e) -> {
+                        if (e instanceof TimeoutException && release(publishId) != null) {
+                            timeoutCounter.increment();
+                        }
+                    });
+        }
+
+        try {
+            Message<byte[]> message = MessageBuilder.withPayload(serialize(mailDTO))
+                    .setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON_VALUE)
+                    .setHeader(PUBLISH_ID_HEADER, publishId)
+                    .build();
+            source.output().send(message);
+        } catch (RuntimeException e) {
+            if (confirms) {
+                release(publishId);
+            } else {
+                permits.release();
+            }
+            nackCounter.increment();
+            confirm.completeExceptionally(e);
+            return confirm;
+        }
+
+        if (!confirms) {
+            permits.release();
+            publishTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            confirm.complete(null);
+        }
+        return confirm;
+    }
+
+    // same channel the binder sends confirms to, so the two can't drift apart
+    @ServiceActivator(inputChannel =
+            "${spring.cloud.stream.rabbit.bindings.output.producer.confirmAckChannel:mailConfirmAcks}")
+    public void onConfirm(Message<?> ack) {
+        InFlight pending = release(ack.getHeaders().get(PUBLISH_ID_HEADER, String.class));
+        if (pending != null) {
+            publishTimer.record(System.nanoTime() - pending.start, TimeUnit.NANOSECONDS);
+            pending.confirm.complete(null);
+        }
+    }
+
+    // nacked and returned messages are sent to binding's error channel
+    @ServiceActivator(inputChannel = "${spring.cloud.stream.bindings.output.destination:mail}.errors")
+    public void onPublishError(ErrorMessage errorMessage) {
+        Throwable error = errorMessage.getPayload();
+        if (!(error instanceof MessagingException) || ((MessagingException) error).getFailedMessage() == null) {
+            logger.error("ServiceLog.publishMail.error", error);
+            return;
+        }
+
+        Message<?> failed = ((MessagingException) error).getFailedMessage();
+        InFlight pending = release(failed.getHeaders().get(PUBLISH_ID_HEADER, String.class));
+        if (pending != null) {
+            nackCounter.increment();
+            pending.confirm.completeExceptionally(error);
+        }
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private boolean acquirePermit() {
+        try {
+            return permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // only the caller which removes the entry gives the permit back
+    private InFlight release(String publishId) {
+        if (publishId == null) {
+            return null;
+        }
+        InFlight pending = inFlight.remove(publishId);
+        if (pending != null) {
+            permits.release();
+        }
+        return pending;
+    }
+
+    private byte[] serialize(MailDTO mailDTO) {
+        ByteArrayOutputStream buffer = buffers.get();
+        buffer.reset();
+        try {
+            writer.writeValue(buffer, mailDTO);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Mail couldn't be serialized", e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static Counter failureCounter(MeterRegistry registry, String destination, String reason) {
+        return Counter.builder("mail.publish.failures")
+                .description("Mails which weren't confirmed by broker")
+                .tag("destination", destination)
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    private static class InFlight {
+
+        private final CompletableFuture<Void> confirm;
+        private final long start;
+
+        InFlight(CompletableFuture<Void> confirm, long start) {
+            this.confirm = confirm;
+            this.start = start;
+        }
+    }
+}
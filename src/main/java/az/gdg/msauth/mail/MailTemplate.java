@@ -0,0 +1,76 @@
+package az.gdg.msauth.mail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+// template is split into literal and variable segments once, rendering only appends them
+public final class MailTemplate {
+
+    private static final String VARIABLE_START = "{{";
+    private static final String VARIABLE_END = "}}";
+
+    private final String[] literals;
+    private final String[] variables;
+    private final int literalLength;
+
+    private MailTemplate(List<String> literals, List<String> variables) {
+        this.literals = literals.toArray(new String[0]);
+        this.variables = variables.toArray(new String[0]);
+        this.literalLength = literals.stream().mapToInt(String::length).sum();
+    }
+
+    public static MailTemplate compile(String source) {
+        return compile(source, Collections.emptyMap());
+    }
+
+    // constants such as base urls are resolved at compile time and merged into literals
+    public static MailTemplate compile(String source, Map<String, String> constants) {
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+
+        int position = 0;
+        while (position < source.length()) {
+            int start = source.indexOf(VARIABLE_START, position);
+            if (start < 0) {
+                break;
+            }
+            int end = source.indexOf(VARIABLE_END, start);
+            if (end < 0) {
+                throw new IllegalArgumentException("Mail template variable isn't closed at " + start);
+            }
+
+            literal.append(source, position, start);
+            String name = source.substring(start + VARIABLE_START.length(), end).trim();
+            if (constants.containsKey(name)) {
+                literal.append(constants.get(name));
+            } else {
+                literals.add(literal.toString());
+                variables.add(name);
+                literal.setLength(0);
+            }
+            position = end + VARIABLE_END.length();
+        }
+        literal.append(source.substring(position));
+        literals.add(literal.toString());
+
+        return new MailTemplate(literals, variables);
+    }
+
+    public String render(Map<String, ?> values) {
+        String[] resolved = new String[variables.length];
+        int length = literalLength;
+        for (int i = 0; i < variables.length; i++) {
+            resolved[i] = String.valueOf(values.get(variables[i]));
+            length += resolved[i].length();
+        }
+
+        StringBuilder body = new StringBuilder(length);
+        for (int i = 0; i < variables.length; i++) {
+            body.append(literals[i]).append(resolved[i]);
+        }
+        return body.append(literals[variables.length]).toString();
+    }
+}
@@ -0,0 +1,60 @@
+package az.gdg.msauth.mail;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+// mail bodies, templates are loaded and compiled once at startup
+@Component
+public class MailTemplates {
+
+    private static final String TOKEN = "token";
+
+    private final MailTemplate verifyAccount;
+    private final MailTemplate resetPassword;
+    private final MailTemplate passwordChanged;
+
+    public MailTemplates(ResourceLoader resourceLoader,
+                         @Value("${mail.links.verifyAccount}") String verifyAccountUrl,
+                         @Value("${mail.links.resetPassword}") String resetPasswordUrl) {
+        Map<String, String> constants = new HashMap<>();
+        constants.put("verifyAccountUrl", verifyAccountUrl);
+        constants.put("resetPasswordUrl", resetPasswordUrl);
+
+        this.verifyAccount = load(resourceLoader, "verify-account", constants);
+        this.resetPassword = load(resourceLoader, "reset-password", constants);
+        this.passwordChanged = load(resourceLoader, "password-changed", constants);
+    }
+
+    public String verifyAccount(String token) {
+        return verifyAccount.render(Collections.singletonMap(TOKEN, token));
+    }
+
+    public String resetPassword(String token) {
+        return resetPassword.render(Collections.singletonMap(TOKEN, token));
+    }
+
+    public String passwordChanged() {
+        return passwordChanged.render(Collections.emptyMap());
+    }
+
+    private static MailTemplate load(ResourceLoader resourceLoader, String name, Map<String, String> constants) {
+        Resource resource = resourceLoader.getResource("classpath:mail/" + name + ".html");
+        try (InputStream inputStream = resource.getInputStream()) {
+            String source = StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8).strip();
+            return MailTemplate.compile(source, constants);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Mail template " + name + " couldn't be loaded", e);
+        }
+    }
+}
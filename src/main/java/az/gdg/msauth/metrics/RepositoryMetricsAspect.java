@@ -0,0 +1,50 @@
+package az.gdg.msauth.metrics;
+
+import az.gdg.msauth.logging.RequestSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// times queries of our repositories, e.g. findByMail which is on login and sign up path,
+// their sum is the db phase of request summary
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+    public RepositoryMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(* az.gdg.msauth.dao.*Repository.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer timer = timers.computeIfAbsent(((MethodSignature) joinPoint.getSignature()).getMethod(),
+                this::createTimer);
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            RequestSummary.recordPhase(RequestSummary.DB, start);
+        }
+    }
+
+    private Timer createTimer(Method method) {
+        return Timer.builder("db.repository")
+                .description("Time spent on repository method including connection acquisition")
+                .tag("repository", method.getDeclaringClass().getSimpleName())
+                .tag("method", method.getName())
+                .register(meterRegistry);
+    }
+}
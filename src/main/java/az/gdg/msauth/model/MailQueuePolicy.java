@@ -0,0 +1,10 @@
+package az.gdg.msauth.model;
+
+// what happens to a mail when mail outbox has mail.outbox.maxPending unsent mails,
+// UNBOUNDED ignores the limit and relies on outbox table to hold whatever broker can't take
+public enum MailQueuePolicy {
+
+    UNBOUNDED,
+    DROP,
+    FAIL
+}
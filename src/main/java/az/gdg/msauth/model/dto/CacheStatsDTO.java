@@ -0,0 +1,23 @@
+package az.gdg.msauth.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheStatsDTO {
+
+    private String name;
+    private Long estimatedSize;
+    private Long hitCount;
+    private Long missCount;
+    private Double hitRate;
+    private Long evictionCount;
+    private Long loadSuccessCount;
+    private Long loadFailureCount;
+    private Double averageLoadPenalty;
+}
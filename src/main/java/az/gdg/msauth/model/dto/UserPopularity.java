@@ -0,0 +1,17 @@
+package az.gdg.msauth.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPopularity {
+
+    private Long id;
+    private Integer popularity;
+
+}
@@ -0,0 +1,29 @@
+package az.gdg.msauth.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+@Entity
+@Data
+@Table(name = "token_revocations")
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TokenRevocationEntity {
+
+    @Id
+    @Column(name = "mail")
+    private String mail;
+
+    // epoch seconds
+    @Column(name = "revoked_at")
+    private Long revokedAt;
+
+}
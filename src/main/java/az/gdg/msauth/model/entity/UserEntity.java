@@ -19,6 +19,7 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
@@ -69,6 +70,9 @@ public class UserEntity {
     @Column(name = "remaining_hate_count")
     private Integer remainingHateCount;
 
+    @Column(name = "quota_day")
+    private LocalDate quotaDay;
+
     @Column(name = "created_at")
     @CreationTimestamp
     @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm")
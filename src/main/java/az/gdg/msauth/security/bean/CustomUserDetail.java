@@ -1,6 +1,7 @@
 package az.gdg.msauth.security.bean;
 
 import az.gdg.msauth.security.model.Role;
+import az.gdg.msauth.security.model.Status;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.NoArgsConstructor;
@@ -16,6 +17,8 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 public class CustomUserDetail implements UserDetails {
+    private Long id;
+
     private String username;
 
     private String mail;
@@ -24,6 +27,8 @@ public class CustomUserDetail implements UserDetails {
 
     private List<Role> authorities;
 
+    private Status status;
+
     private boolean accountNonExpired;
 
     private boolean accountNonLocked;
@@ -32,6 +37,18 @@ public class CustomUserDetail implements UserDetails {
 
     private boolean enabled;
 
+    public Long getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Role getRole() {
+        return authorities.get(0);
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return authorities;
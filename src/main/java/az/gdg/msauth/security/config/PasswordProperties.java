@@ -0,0 +1,40 @@
+package az.gdg.msauth.security.config;
+
+import az.gdg.msauth.security.model.HashRejectionPolicy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "security.password")
+public class PasswordProperties {
+
+    // hasher pool size, 0 means half of the cores
+    private int threads;
+
+    private int queueCapacity = 100;
+
+    private HashRejectionPolicy rejectionPolicy = HashRejectionPolicy.ABORT;
+
+    // new and upgraded hashes are stored with this algorithm, one of bcrypt, argon2, scrypt
+    private String algorithm = "bcrypt";
+
+    // stored hashes with lower cost are upgraded on next successful login
+    private int bcryptStrength = 10;
+
+    private Argon2 argon2 = new Argon2();
+
+    @Data
+    public static class Argon2 {
+
+        private int saltLength = 16;
+
+        private int hashLength = 32;
+
+        private int parallelism = 1;
+
+        // in kilobytes
+        private int memory = 4096;
+
+        private int iterations = 3;
+    }
+}
@@ -1,6 +1,9 @@
 package az.gdg.msauth.security.config;
 
 import az.gdg.msauth.security.filter.TokenFilter;
+import az.gdg.msauth.security.util.PasswordHasher;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -9,15 +12,22 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.scrypt.SCryptPasswordEncoder;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Configuration
 @EnableWebSecurity
 @EnableGlobalMethodSecurity(prePostEnabled = true)
+@EnableConfigurationProperties(PasswordProperties.class)
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
     private final AuthenticationEntryPoint unauthorizedHandler;
@@ -60,7 +70,28 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordHasher passwordEncoder(PasswordProperties passwordProperties, MeterRegistry meterRegistry) {
+        // by default half of the cores are left for request handling
+        int threads = passwordProperties.getThreads() > 0 ? passwordProperties.getThreads() :
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new PasswordHasher(delegatingPasswordEncoder(passwordProperties), threads,
+                passwordProperties.getQueueCapacity(), passwordProperties.getRejectionPolicy(), meterRegistry);
+    }
+
+    // hashes are stored with {algorithm} prefix, stored hashes with other algorithm or lower cost are upgraded
+    private static PasswordEncoder delegatingPasswordEncoder(PasswordProperties passwordProperties) {
+        PasswordProperties.Argon2 argon2 = passwordProperties.getArgon2();
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(passwordProperties.getBcryptStrength());
+
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("argon2", new Argon2PasswordEncoder(argon2.getSaltLength(), argon2.getHashLength(),
+                argon2.getParallelism(), argon2.getMemory(), argon2.getIterations()));
+        encoders.put("scrypt", new SCryptPasswordEncoder());
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(passwordProperties.getAlgorithm(), encoders);
+        // hashes stored before prefixes were introduced are plain bcrypt
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
     }
 }
\ No newline at end of file
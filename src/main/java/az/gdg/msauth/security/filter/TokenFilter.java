@@ -1,11 +1,26 @@
 package az.gdg.msauth.security.filter;
 
+import az.gdg.msauth.exception.WrongDataException;
+import az.gdg.msauth.logging.RequestSummary;
+import az.gdg.msauth.logging.RequestSummaryFilter;
 import az.gdg.msauth.security.bean.CustomUserDetail;
+import az.gdg.msauth.security.model.Role;
+import az.gdg.msauth.security.model.Status;
+import az.gdg.msauth.security.model.dto.UserInfo;
+import az.gdg.msauth.security.service.TokenRevocationService;
 import az.gdg.msauth.security.service.impl.UserDetailServiceImpl;
 import az.gdg.msauth.security.util.TokenUtil;
-import lombok.AllArgsConstructor;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
@@ -16,34 +31,138 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 @Component
-@AllArgsConstructor
 public class TokenFilter extends OncePerRequestFilter {
 
+    private static final Logger logger = LoggerFactory.getLogger(TokenFilter.class);
+
     private final TokenUtil tokenUtil;
     private final UserDetailServiceImpl userDetailService;
-
+    private final TokenRevocationService tokenRevocationService;
+    private final AuthenticationEntryPoint authenticationEntryPoint;
+    private final boolean statelessPrincipal;
+    private final Timer authenticatedTimer;
+    private final Timer rejectedTimer;
+    private final Timer failedTimer;
+    private final Timer mailTokenTimer;
+
+    public TokenFilter(TokenUtil tokenUtil, UserDetailServiceImpl userDetailService,
+                       TokenRevocationService tokenRevocationService,
+                       AuthenticationEntryPoint authenticationEntryPoint,
+                       @Value("${jwt.statelessPrincipal:true}") boolean statelessPrincipal,
+                       MeterRegistry meterRegistry) {
+        this.tokenUtil = tokenUtil;
+        this.userDetailService = userDetailService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.authenticationEntryPoint = authenticationEntryPoint;
+        this.statelessPrincipal = statelessPrincipal;
+
+        this.authenticatedTimer = validationTimer(meterRegistry, "authenticated");
+        this.rejectedTimer = validationTimer(meterRegistry, "rejected");
+        this.failedTimer = validationTimer(meterRegistry, "failed");
+        this.mailTokenTimer = validationTimer(meterRegistry, "mailToken");
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
 
+        long start = System.nanoTime();
         String jwtFromHeader = extractJwtFromHeader(request);
 
-        if (jwtFromHeader != null && tokenUtil.isTokenValid(jwtFromHeader)) {
-            String email = tokenUtil.getMailFromToken(jwtFromHeader);
+        if (jwtFromHeader != null) {
+            Timer timer = failedTimer;
+            boolean rejected = true;
+            try {
+                if (tokenUtil.isMailToken(jwtFromHeader)) {
+                    // verify and reset password tokens are checked by the endpoints which accept them
+                    timer = mailTokenTimer;
+                    rejected = false;
+                } else if (authenticate(request, jwtFromHeader)) {
+                    timer = authenticatedTimer;
+                    rejected = false;
+                } else {
+                    timer = rejectedTimer;
+                }
+            } catch (JwtException | IllegalArgumentException e) {
+                logger.debug("FilterLog.tokenFilter.failed.message : {}", e.getMessage());
+            } finally {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+
+            if (rejected) {
+                SecurityContextHolder.clearContext();
+                authenticationEntryPoint.commence(request, response,
+                        new BadCredentialsException("Token is not valid"));
+                return;
+            }
+        }
+        RequestSummary.recordPhase(RequestSummary.AUTH, start);
+        filterChain.doFilter(request, response);
+    }
 
-            CustomUserDetail userDetails = (CustomUserDetail) userDetailService.loadUserByUsername(email);
-            UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
-                    userDetails, null, userDetails.getAuthorities());
-            authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-            SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+    private boolean authenticate(HttpServletRequest request, String jwtFromHeader) {
+        if (!tokenUtil.isTokenValid(jwtFromHeader)) {
+            return false;
+        }
 
+        UserInfo userInfo = tokenUtil.getUserInfoFromToken(jwtFromHeader);
+        if (Status.BLOCKED.toString().equals(userInfo.getStatus()) ||
+                tokenRevocationService.isRevoked(userInfo.getMail(),
+                        tokenUtil.getIssuedAtDateFromToken(jwtFromHeader))) {
+            return false;
+        }
 
+        CustomUserDetail userDetails = statelessPrincipal ? buildUserDetail(userInfo) : loadUserDetail(userInfo);
+        if (userDetails == null) {
+            return false;
         }
-        filterChain.doFilter(request, response);
+
+        UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
+                userDetails, null, userDetails.getAuthorities());
+        authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+
+        if (userDetails.getId() != null) {
+            String userId = userDetails.getId().toString();
+            MDC.put(RequestSummaryFilter.USER_ID, userId);
+            RequestSummary.setUserId(userId);
+        }
+        return true;
+    }
+
+    // role and status are signed into the token, so the principal is built without loading the user from database
+    private CustomUserDetail buildUserDetail(UserInfo userInfo) {
+        return CustomUserDetail.builder()
+                .id(userInfo.getUserId() != null ? Long.valueOf(userInfo.getUserId()) : null)
+                .username(userInfo.getMail())
+                .mail(userInfo.getMail())
+                .authorities(Collections.singletonList(Role.valueOf(userInfo.getRole())))
+                .status(Status.valueOf(userInfo.getStatus()))
+                .accountNonExpired(true)
+                .accountNonLocked(true)
+                .credentialsNonExpired(true)
+                .enabled(true).build();
+    }
+
+    private CustomUserDetail loadUserDetail(UserInfo userInfo) {
+        try {
+            return (CustomUserDetail) userDetailService.loadUserByUsername(userInfo.getMail());
+        } catch (WrongDataException e) {
+            return null;
+        }
+    }
+
+    // rejected and failed requests get 401, failed means token couldn't be parsed or verified, e.g. bad signature
+    private static Timer validationTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("auth.token.filter")
+                .description("Token validation of incoming requests")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
 
     private String extractJwtFromHeader(HttpServletRequest req) {
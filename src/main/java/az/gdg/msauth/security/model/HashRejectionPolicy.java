@@ -0,0 +1,10 @@
+package az.gdg.msauth.security.model;
+
+public enum HashRejectionPolicy {
+
+    // fail fast with ServiceUnavailableException which is answered with 503, so floods are shed
+    ABORT,
+    // hash on the calling web server thread, so callers are slowed down instead of failed,
+    // it takes cores from request handling under the load the pool is meant to bound
+    CALLER_RUNS
+}
@@ -0,0 +1,10 @@
+package az.gdg.msauth.security.service;
+
+import java.util.Date;
+
+public interface TokenRevocationService {
+
+    void revokeTokens(String mail);
+
+    boolean isRevoked(String mail, Date issuedAt);
+}
@@ -2,20 +2,22 @@ package az.gdg.msauth.security.service.impl;
 
 import az.gdg.msauth.dao.UserRepository;
 import az.gdg.msauth.exception.NotFoundException;
+import az.gdg.msauth.exception.ServiceUnavailableException;
 import az.gdg.msauth.exception.WrongDataException;
 import az.gdg.msauth.model.entity.UserEntity;
 import az.gdg.msauth.security.bean.CustomUserDetail;
 import az.gdg.msauth.security.exception.AuthenticationException;
-import az.gdg.msauth.security.model.TokenType;
 import az.gdg.msauth.security.model.dto.JwtAuthenticationRequest;
 import az.gdg.msauth.security.model.dto.JwtAuthenticationResponse;
 import az.gdg.msauth.security.model.dto.UserInfo;
 import az.gdg.msauth.security.service.AuthenticationService;
 import az.gdg.msauth.security.util.TokenUtil;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -37,71 +39,68 @@ public class AuthenticationServiceImpl implements AuthenticationService {
         this.authenticationManager = authenticationManager;
     }
 
+    // user is loaded once by authentication provider and carried in the authenticated principal
+    @Timed(value = "auth.login", description = "Login including password check and token generation")
     public JwtAuthenticationResponse createAuthenticationToken(JwtAuthenticationRequest request) {
         logger.info("ServiceLog.createAuthenticationToken.start.mail : {}", request.getMail());
 
-        authenticate(request.getMail(), request.getPassword());
-        UserEntity userEntity = userRepository.findByMail(request.getMail());
-
-        if (userEntity != null) {
-
-            switch (userEntity.getStatus().toString()) {
-                case "CONFIRMED":
-                    String userId = userEntity.getId().toString();
-                    String role = userEntity.getRole().toString();
-                    String status = userEntity.getStatus().toString();
-
-                    String access = tokenUtil.generateToken(request.getMail(),
-                            userId, role, status, TokenType.ACCESS);
-
-                    String refresh = tokenUtil.generateToken(request.getMail(),
-                            userId, role, status, TokenType.REFRESH);
-
-                    logger.info("ServiceLog.createAuthenticationToken.stop.success.mail : {}", request.getMail());
-                    return new JwtAuthenticationResponse(access, refresh);
-                case "REGISTERED":
-                    throw new AuthenticationException("Your registration is not verified," +
-                            " please check your mail for verification link which has been sent");
-                case "BLOCKED":
-                    throw new AuthenticationException("Your account has been blocked by admins, please contact us");
-                default:
-
-            }
-
-
-        } else {
+        Authentication authentication = authenticate(request.getMail(), request.getPassword());
+        if (authentication == null || !(authentication.getPrincipal() instanceof CustomUserDetail)) {
             throw new NotFoundException("Incorrect login credentials!");
         }
-
-        return null;
+        CustomUserDetail user = (CustomUserDetail) authentication.getPrincipal();
+
+        switch (user.getStatus()) {
+            case CONFIRMED:
+                JwtAuthenticationResponse response = tokenUtil.generateTokens(user.getUsername(),
+                        user.getId().toString(), user.getRole().toString(), user.getStatus().toString());
+                logger.info("ServiceLog.createAuthenticationToken.stop.success.mail : {}", request.getMail());
+                return response;
+            case REGISTERED:
+                throw new AuthenticationException("Your registration is not verified," +
+                        " please check your mail for verification link which has been sent");
+            case BLOCKED:
+                throw new AuthenticationException("Your account has been blocked by admins, please contact us");
+            default:
+                return null;
+        }
     }
 
-    public void authenticate(String username, String password) {
+    public Authentication authenticate(String username, String password) {
         logger.info("ServiceLog.authenticate.start.username : {}", username);
 
         if (username != null && password != null) {
             try {
-                authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(username, password));
+                Authentication authentication = authenticationManager
+                        .authenticate(new UsernamePasswordAuthenticationToken(username, password));
+                logger.info("ServiceLog.authenticate.stop.success.username : {}", username);
+                return authentication;
             } catch (BadCredentialsException e) {
                 throw new AuthenticationException("Incorrect login credentials!", e);
+            } catch (InternalAuthenticationServiceException e) {
+                // hasher rejects are wrapped when password of an unknown user is checked, they stay 503
+                if (e.getCause() instanceof ServiceUnavailableException) {
+                    throw (ServiceUnavailableException) e.getCause();
+                }
+                throw e;
             }
         } else {
             throw new WrongDataException("Username or Password is null!");
         }
-
-        logger.info("ServiceLog.authenticate.stop.success.username : {}", username);
     }
 
+    @Timed("auth.token.validate")
     public UserInfo validateToken(String token) {
-        logger.info("ServiceLog.validateToken.start");
+        logger.debug("ServiceLog.validateToken.start");
         tokenUtil.isTokenValid(token);
-        logger.info("ServiceLog.validateToken.stop.success");
+        logger.debug("ServiceLog.validateToken.stop.success");
 
         return tokenUtil.getUserInfoFromToken(token);
     }
 
     // in TokenFilter , if token is valid , Authentication object is set to SecurityContext after a few operations(see TokenFilter)
     @Override
+    @Timed("auth.token.refresh")
     public JwtAuthenticationResponse refreshToken(String token) {
 
         if (tokenUtil.isTokenValid(token)) {
@@ -110,13 +109,8 @@ public class AuthenticationServiceImpl implements AuthenticationService {
             UserEntity userEntity = userRepository.findByMail(customUserDetail.getUsername());
 
             if (userEntity != null) {
-                String access = tokenUtil.generateToken(userEntity.getUsername(), userEntity.getId().toString(),
-                        userEntity.getRole().toString(), userEntity.getStatus().toString(), TokenType.ACCESS);
-
-                String refresh = tokenUtil.generateToken(userEntity.getUsername(), userEntity.getId().toString(),
-                        userEntity.getRole().toString(), userEntity.getStatus().toString(), TokenType.REFRESH);
-
-                return new JwtAuthenticationResponse(access, refresh);
+                return tokenUtil.generateTokens(userEntity.getUsername(), userEntity.getId().toString(),
+                        userEntity.getRole().toString(), userEntity.getStatus().toString());
             } else {
                 throw new NotFoundException("User is not found");
             }
@@ -0,0 +1,76 @@
+package az.gdg.msauth.security.service.impl;
+
+import az.gdg.msauth.dao.TokenRevocationRepository;
+import az.gdg.msauth.model.entity.TokenRevocationEntity;
+import az.gdg.msauth.security.service.TokenRevocationService;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+// revocations are stored in database so they apply to every instance,
+// each instance keeps them for jwt.revocationCacheTtl to keep database off the request path
+@Service
+public class TokenRevocationServiceImpl implements TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationServiceImpl.class);
+    private static final long NOT_REVOKED = 0;
+
+    private final TokenRevocationRepository tokenRevocationRepository;
+
+    // mail -> epoch second from which tokens are accepted again
+    private final LoadingCache<String, Long> revocations;
+
+    public TokenRevocationServiceImpl(TokenRevocationRepository tokenRevocationRepository,
+                                      @Value("${jwt.revocationCacheTtl:10s}") Duration cacheTtl,
+                                      @Value("${jwt.revocationCacheSize:10000}") long cacheSize) {
+        this.tokenRevocationRepository = tokenRevocationRepository;
+        this.revocations = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl)
+                .build(this::loadRevocation);
+    }
+
+    @Override
+    @Transactional
+    public void revokeTokens(String mail) {
+        logger.info("ServiceLog.revokeTokens.start.mail : {}", mail);
+        long revokedAt = Instant.now().getEpochSecond();
+        tokenRevocationRepository.save(new TokenRevocationEntity(mail, revokedAt));
+
+        // this instance sees the revocation as soon as it is committed, others on next cache load
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    revocations.put(mail, revokedAt);
+                }
+            });
+        } else {
+            revocations.put(mail, revokedAt);
+        }
+        logger.info("ServiceLog.revokeTokens.stop.success.mail : {}", mail);
+    }
+
+    // iat has second precision, a token issued in the second of revocation, e.g. on next login, is accepted
+    @Override
+    public boolean isRevoked(String mail, Date issuedAt) {
+        long revokedAt = revocations.get(mail);
+        return revokedAt != NOT_REVOKED && (issuedAt == null || issuedAt.getTime() / 1000 < revokedAt);
+    }
+
+    private Long loadRevocation(String mail) {
+        return tokenRevocationRepository.findById(mail)
+                .map(TokenRevocationEntity::getRevokedAt)
+                .orElse(NOT_REVOKED);
+    }
+}
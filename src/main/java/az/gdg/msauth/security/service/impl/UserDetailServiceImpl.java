@@ -4,7 +4,10 @@ import az.gdg.msauth.dao.UserRepository;
 import az.gdg.msauth.exception.WrongDataException;
 import az.gdg.msauth.model.entity.UserEntity;
 import az.gdg.msauth.security.bean.CustomUserDetail;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -12,8 +15,10 @@ import org.springframework.stereotype.Service;
 import java.util.Collections;
 
 @Service
-public class UserDetailServiceImpl implements UserDetailsService {
+// also stores rehashed password after login, when stored hash uses outdated algorithm or cost
+public class UserDetailServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
+    private static final Logger logger = LoggerFactory.getLogger(UserDetailServiceImpl.class);
     private final UserRepository repository;
 
     public UserDetailServiceImpl(UserRepository repository) {
@@ -32,11 +37,22 @@ public class UserDetailServiceImpl implements UserDetailsService {
 
     }
 
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        logger.info("ServiceLog.updatePassword.start.username : {}", user.getUsername());
+        repository.updatePassword(user.getUsername(), newPassword);
+        ((CustomUserDetail) user).setPassword(newPassword);
+        logger.info("ServiceLog.updatePassword.stop.success.username : {}", user.getUsername());
+        return user;
+    }
+
     private CustomUserDetail buildSecurityUser(UserEntity user) {
         return CustomUserDetail.builder()
+                .id(user.getId())
                 .username(user.getMail())
                 .password(user.getPassword())
                 .authorities(Collections.singletonList(user.getRole()))
+                .status(user.getStatus())
                 .accountNonExpired(true)
                 .accountNonLocked(true)
                 .credentialsNonExpired(true)
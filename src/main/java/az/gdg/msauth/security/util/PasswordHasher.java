@@ -0,0 +1,113 @@
+package az.gdg.msauth.security.util;
+
+import az.gdg.msauth.exception.ServiceUnavailableException;
+import az.gdg.msauth.security.model.HashRejectionPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// password hashing is cpu bound, it runs on a small dedicated pool instead of web server threads
+public class PasswordHasher implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final HashRejectionPolicy rejectionPolicy;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejectedCounter;
+
+    public PasswordHasher(PasswordEncoder delegate, int threads, int queueCapacity,
+                          HashRejectionPolicy rejectionPolicy, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.rejectionPolicy = rejectionPolicy;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = hashTimer(meterRegistry, "encode");
+        this.matchesTimer = hashTimer(meterRegistry, "matches");
+        this.rejectedCounter = Counter.builder("password.hash.rejected")
+                .description("Hash requests rejected because hasher queue is full")
+                .register(meterRegistry);
+        Gauge.builder("password.hash.queue", executor, pool -> pool.getQueue().size())
+                .description("Hash requests waiting for a hasher thread")
+                .register(meterRegistry);
+        Gauge.builder("password.hash.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    // caller waits for the hash, the pool only bounds how many hashes run at once
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return await(submit(encodeTimer, () -> delegate.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return await(submit(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword)));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> submit(Timer timer, Supplier<T> hash) {
+        Supplier<T> timed = () -> timer.record(hash);
+        try {
+            return CompletableFuture.supplyAsync(timed, executor);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            if (rejectionPolicy == HashRejectionPolicy.CALLER_RUNS && !executor.isShutdown()) {
+                return CompletableFuture.completedFuture(timed.get());
+            }
+            throw new ServiceUnavailableException("Too many requests, please try again later");
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static Timer hashTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("password.hash")
+                .description("Time spent on hashing or verifying a password")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
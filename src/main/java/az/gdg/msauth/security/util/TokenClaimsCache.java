@@ -0,0 +1,91 @@
+package az.gdg.msauth.security.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// keeps verified claims per token, so signature check and parsing happen once per token lifetime
+@Component
+public class TokenClaimsCache implements MeterBinder {
+
+    private final Cache<String, Claims> claims;
+
+    public TokenClaimsCache(@Value("${jwt.claimsCacheSize:10000}") long maximumSize) {
+        this.claims = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new ExpireWithToken())
+                .recordStats()
+                .build();
+    }
+
+    public Claims get(String token, Function<String, Claims> parser) {
+        return claims.get(digest(token), key -> parser.apply(token));
+    }
+
+    public long getHitCount() {
+        return claims.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return claims.stats().missCount();
+    }
+
+    public CacheStats getStats() {
+        return claims.stats();
+    }
+
+    // not a cache of cache manager, so it is bound to registry on its own
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        CaffeineCacheMetrics.monitor(meterRegistry, claims, "tokenClaims");
+    }
+
+    // raw tokens are credentials, only their digest is kept as a key
+    private String digest(String token) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = messageDigest.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private static class ExpireWithToken implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String key, Claims value, long currentTime) {
+            Date expiration = value.getExpiration();
+            if (expiration == null) {
+                return Long.MAX_VALUE;
+            }
+            long millisLeft = expiration.getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, millisLeft));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
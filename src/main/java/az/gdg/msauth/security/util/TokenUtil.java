@@ -1,10 +1,12 @@
 package az.gdg.msauth.security.util;
 
 import az.gdg.msauth.security.model.TokenType;
+import az.gdg.msauth.security.model.dto.JwtAuthenticationResponse;
 import az.gdg.msauth.security.model.dto.UserInfo;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Clock;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.impl.DefaultClock;
 import io.jsonwebtoken.io.Decoders;
@@ -17,8 +19,6 @@ import org.springframework.stereotype.Component;
 import javax.annotation.PostConstruct;
 import java.security.Key;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
 import java.util.function.Function;
 
@@ -27,6 +27,7 @@ public class TokenUtil {
 
     private static final Logger logger = LoggerFactory.getLogger(TokenUtil.class);
     private final Clock clock = DefaultClock.INSTANCE;
+    private final TokenClaimsCache claimsCache;
     @Value("${jwt.secret}")
     private String secret;
 
@@ -41,6 +42,10 @@ public class TokenUtil {
     @Value("${jwt.verifyTokenExpiration}")
     private Long verifyTokenExpiration;
 
+    public TokenUtil(TokenClaimsCache claimsCache) {
+        this.claimsCache = claimsCache;
+    }
+
     @PostConstruct
     public void init() {
         byte[] keyBytes = Decoders.BASE64.decode(secret);
@@ -48,76 +53,90 @@ public class TokenUtil {
     }
 
     public UserInfo getUserInfoFromToken(String token) {
-        logger.info("UtilLog.getUserInfoFromToken.start");
-        String userId = getClaimFromToken(token, Claims::getId);
-        String mail = getClaimFromToken(token, Claims::getSubject);
-        String role = getAllClaimsFromToken(token).get("role").toString();
-        String status = getAllClaimsFromToken(token).get("status").toString();
-        logger.info("UtilLog.getUserInfoFromToken.stop.success");
+        logger.debug("UtilLog.getUserInfoFromToken.start");
+        Claims claims = getAllClaimsFromToken(token);
+        Object role = claims.get("role");
+        Object status = claims.get("status");
+        // verify and reset password tokens are signed with the same key but don't carry user info
+        if (role == null || status == null) {
+            throw new MalformedJwtException("Token doesn't have role and status claims");
+        }
+        logger.debug("UtilLog.getUserInfoFromToken.stop.success");
         return UserInfo
                 .builder()
-                .role(role)
-                .status(status)
-                .userId(userId)
-                .mail(mail)
+                .role(role.toString())
+                .status(status.toString())
+                .userId(claims.getId())
+                .mail(claims.getSubject())
                 .build();
     }
 
     public String getMailFromToken(String token) {
-        logger.info("UtilLog.getEmailFromToken.start");
+        logger.debug("UtilLog.getEmailFromToken.start");
         String mail = getClaimFromToken(token, Claims::getSubject);
-        logger.info("UtilLog.getEmailFromToken.start.success");
+        logger.debug("UtilLog.getEmailFromToken.start.success");
         return mail;
     }
 
+    // tokens of generateTokenWithEmail are sent in mails, they have no token type
+    public boolean isMailToken(String token) {
+        return getClaimFromToken(token, claims -> claims.get("tokenType")) == null;
+    }
+
+    public Date getIssuedAtDateFromToken(String token) {
+        logger.debug("UtilLog.getIssuedAtDateFromToken.start");
+        return getClaimFromToken(token, Claims::getIssuedAt);
+    }
+
     private <T> T getClaimFromToken(String token, Function<Claims, T> claimsResolver) {
-        logger.info("UtilLog.getClaimFromToken.start");
         Claims claims = getAllClaimsFromToken(token);
-        logger.info("UtilLog.getClaimFromToken.stop.success");
         return claimsResolver.apply(claims);
     }
 
     private Claims getAllClaimsFromToken(String token) {
-        logger.info("UtilLog.getAllClaimsFromToken.start");
+        return claimsCache.get(token, this::parseClaims);
+    }
+
+    private Claims parseClaims(String token) {
         return Jwts.parser()
                 .setSigningKey(key)
                 .parseClaimsJws(token)
                 .getBody();
     }
 
-    public String generateToken(String username, String userId, String role, String status, TokenType tokenType) {
-        logger.info("UtilLog.generateToken.start.username : {}", username);
-        Map<String, Object> claims = new HashMap<>();
+    // access and refresh tokens are signed from one claims set, only token type and expiration differ
+    public JwtAuthenticationResponse generateTokens(String username, String userId, String role, String status) {
+        logger.debug("UtilLog.generateTokens.start.username : {}", username);
+        Date createdDate = clock.now();
+        Claims claims = Jwts.claims();
         claims.put("userId", userId);
         claims.put("role", role);
         claims.put("status", status);
-        claims.put("tokenType", tokenType);
-        logger.info("UtilLog.generateToken.stop.success.username : {}", username);
-        return doGenerateToken(claims, username, userId, tokenType);
+        claims.setSubject(username);
+        claims.setId(userId);
+        claims.setIssuedAt(createdDate);
+
+        String access = signToken(claims, createdDate, TokenType.ACCESS);
+        String refresh = signToken(claims, createdDate, TokenType.REFRESH);
+        logger.debug("UtilLog.generateTokens.stop.success.username : {}", username);
+        return new JwtAuthenticationResponse(access, refresh);
     }
 
-    public String doGenerateToken(Map<String, Object> claims,
-                                  String subject, String userId, TokenType tokenType) {
-        logger.info("UtilLog.doGenerateToken.start.subject : {}", subject);
-        Date createdDate = clock.now();
-        Date expirationDate = calculateExpirationDate(createdDate, tokenType);
-        logger.info("UtilLog.doGenerateToken.stop.success.subject : {}", subject);
+    private String signToken(Claims claims, Date createdDate, TokenType tokenType) {
+        claims.put("tokenType", tokenType);
+        claims.setExpiration(calculateExpirationDate(createdDate, tokenType));
         return Jwts.builder()
                 .setClaims(claims)
-                .setSubject(subject)//username
-                .setId(userId)
-                .setIssuedAt(createdDate)
-                .setExpiration(expirationDate)
                 .signWith(key, SignatureAlgorithm.HS512)
                 .compact();
     }
 
     // generated token will send via mail to user, then user clicks hiperlink and goes to verify-account endpoint
     public String generateTokenWithEmail(String mail) {
-        logger.info("UtilLog.generateTokenWithEmail.start");
+        logger.debug("UtilLog.generateTokenWithEmail.start");
         Date createdDate = clock.now();
         Date expiration = new Date(createdDate.getTime() + verifyTokenExpiration * 100);
-        logger.info("UtilLog.generateTokenWithEmail.stop.success");
+        logger.debug("UtilLog.generateTokenWithEmail.stop.success");
         return Jwts.builder()
                 .setSubject(mail)
                 .setIssuedAt(createdDate)
@@ -127,29 +146,25 @@ public class TokenUtil {
     }
 
     private Date calculateExpirationDate(Date createdDate, TokenType tokenType) {
-        logger.info("UtilLog.calculateExpirationDate.start");
         long expiration = TokenType.ACCESS.equals(tokenType) ? accessExpiration : refreshExpiration;
         return new Date(createdDate.getTime() + expiration * 100);
     }
 
     public boolean isTokenValid(String token) {
-        logger.info("UtilLog.isTokenValid.start");
+        logger.debug("UtilLog.isTokenValid.start");
         if (Objects.isNull(token)) {
             return false;
         }
-        logger.info("UtilLog.isTokenValid.stop.success");
+        logger.debug("UtilLog.isTokenValid.stop.success");
         return !isTokenExpired(token);
     }
 
     private boolean isTokenExpired(String token) {
-        logger.info("UtilLog.isTokenExpired.start");
         Date expirationDate = getExpirationDateFromToken(token);
-        logger.info("UtilLog.isTokenExpired.stop.success");
         return expirationDate.before(clock.now());
     }
 
     private Date getExpirationDateFromToken(String token) {
-        logger.info("UtilLog.getExpirationDateFromToken.start");
         return getClaimFromToken(token, Claims::getExpiration);
     }
 
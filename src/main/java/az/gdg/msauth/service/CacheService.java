@@ -0,0 +1,12 @@
+package az.gdg.msauth.service;
+
+import az.gdg.msauth.model.dto.CacheStatsDTO;
+
+import java.util.List;
+
+public interface CacheService {
+
+    List<CacheStatsDTO> getCacheStats();
+
+    CacheStatsDTO getCacheStats(String name);
+}
@@ -2,8 +2,12 @@ package az.gdg.msauth.service;
 
 import az.gdg.msauth.model.dto.MailDTO;
 
+import java.util.List;
+
 public interface MailService {
 
     void sendToQueue(MailDTO mailDTO);
 
+    void sendAll(List<MailDTO> mails);
+
 }
@@ -32,8 +32,6 @@ public interface UserService {
 
     Integer getRemainingHateCount(String token);
 
-    void refreshRemainingQuackAndHateCount();
-
     void updateImage(String token, List<MultipartFile> multipartFile);
 
 
@@ -0,0 +1,62 @@
+package az.gdg.msauth.service.impl;
+
+import az.gdg.msauth.exception.NotFoundException;
+import az.gdg.msauth.model.dto.CacheStatsDTO;
+import az.gdg.msauth.service.CacheService;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+public class CacheServiceImpl implements CacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheServiceImpl.class);
+    private final CacheManager cacheManager;
+
+    public CacheServiceImpl(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public List<CacheStatsDTO> getCacheStats() {
+        logger.info("ServiceLog.getCacheStats.start");
+        List<CacheStatsDTO> cacheStats = cacheManager.getCacheNames().stream()
+                .map(this::getCacheStats)
+                .collect(Collectors.toList());
+        logger.info("ServiceLog.getCacheStats.stop.success");
+        return cacheStats;
+    }
+
+    @Override
+    public CacheStatsDTO getCacheStats(String name) {
+        logger.info("ServiceLog.getCacheStats.start.name : {}", name);
+        Cache cache = cacheManager.getCacheNames().contains(name) ? cacheManager.getCache(name) : null;
+
+        if (!(cache instanceof CaffeineCache)) {
+            throw new NotFoundException("Not found such cache");
+        }
+
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = ((CaffeineCache) cache).getNativeCache();
+        CacheStats stats = nativeCache.stats();
+
+        logger.info("ServiceLog.getCacheStats.stop.success.name : {}", name);
+        return CacheStatsDTO.builder()
+                .name(name)
+                .estimatedSize(nativeCache.estimatedSize())
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .evictionCount(stats.evictionCount())
+                .loadSuccessCount(stats.loadSuccessCount())
+                .loadFailureCount(stats.loadFailureCount())
+                .averageLoadPenalty(stats.averageLoadPenalty())
+                .build();
+    }
+}
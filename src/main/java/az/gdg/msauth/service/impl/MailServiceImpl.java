@@ -1,29 +1,102 @@
 package az.gdg.msauth.service.impl;
 
+import az.gdg.msauth.dao.MailOutboxRepository;
+import az.gdg.msauth.exception.ExceedLimitException;
+import az.gdg.msauth.logging.RequestSummary;
+import az.gdg.msauth.mail.MailOutboxRelay;
+import az.gdg.msauth.model.MailQueuePolicy;
 import az.gdg.msauth.model.dto.MailDTO;
+import az.gdg.msauth.model.entity.MailOutboxEntity;
 import az.gdg.msauth.service.MailService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cloud.stream.annotation.EnableBinding;
-import org.springframework.cloud.stream.messaging.Source;
-import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.List;
 
+// Mails are written to outbox table in caller's transaction and published later by MailOutboxRelay.
+// When outbox has mail.outbox.maxPending unsent mails, mail.outbox.policy decides what happens:
+// FAIL throws ExceedLimitException and caller's transaction rolls back, DROP doesn't write the mail and counts it,
+// UNBOUNDED writes the mail anyway. Callers aren't blocked, as they would hold a connection while waiting.
 @Service
-@EnableBinding(Source.class)
 public class MailServiceImpl implements MailService {
 
+    public static final String RECIPIENT_DELIMITER = ",";
     private static final Logger logger = LoggerFactory.getLogger(MailServiceImpl.class);
-    private final Source source;
 
-    public MailServiceImpl(Source source) {
-        this.source = source;
+    private final MailOutboxRepository mailOutboxRepository;
+    private final MailOutboxRelay mailOutboxRelay;
+    private final MailQueuePolicy policy;
+    private final long maxPending;
+    private final Counter droppedCounter;
+
+    public MailServiceImpl(MailOutboxRepository mailOutboxRepository, MailOutboxRelay mailOutboxRelay,
+                           MeterRegistry meterRegistry,
+                           @Value("${mail.outbox.policy:FAIL}") MailQueuePolicy policy,
+                           @Value("${mail.outbox.maxPending:10000}") long maxPending) {
+        this.mailOutboxRepository = mailOutboxRepository;
+        this.mailOutboxRelay = mailOutboxRelay;
+        this.policy = policy;
+        this.maxPending = maxPending;
+        this.droppedCounter = Counter.builder("mail.outbox.dropped")
+                .description("Mails which weren't written to outbox because it was full")
+                .register(meterRegistry);
     }
 
     @Override
+    @Transactional(propagation = Propagation.MANDATORY)
     public void sendToQueue(MailDTO mailDTO) {
-        source.output().send(MessageBuilder.withPayload(mailDTO).build());
+        logger.info("ServiceLog.sendToQueue.start.subject : {}", mailDTO.getSubject());
+        long start = System.nanoTime();
+        if (isAccepted(1)) {
+            mailOutboxRepository.save(toOutboxEntity(mailDTO));
+        }
+        RequestSummary.recordPhase(RequestSummary.MAIL, start);
+        logger.info("ServiceLog.sendToQueue.stop.success.subject : {}", mailDTO.getSubject());
+    }
+
+    @Override
+    @Transactional
+    public void sendAll(List<MailDTO> mails) {
+        logger.info("ServiceLog.sendAll.start.count : {}", mails.size());
+        long start = System.nanoTime();
+        if (isAccepted(mails.size())) {
+            List<MailOutboxEntity> entities = new ArrayList<>(mails.size());
+            for (MailDTO mailDTO : mails) {
+                entities.add(toOutboxEntity(mailDTO));
+            }
+            mailOutboxRepository.saveAll(entities);
+        }
+        RequestSummary.recordPhase(RequestSummary.MAIL, start);
+        logger.info("ServiceLog.sendAll.stop.success.count : {}", mails.size());
+    }
+
+    // pending count is the one of last relay poll, so the limit can be passed by mails of one poll interval
+    private boolean isAccepted(int count) {
+        if (policy == MailQueuePolicy.UNBOUNDED || mailOutboxRelay.getPendingCount() < maxPending) {
+            return true;
+        }
+
+        if (policy == MailQueuePolicy.DROP) {
+            droppedCounter.increment(count);
+            logger.warn("ServiceLog.sendToQueue.drop.count : {}", count);
+            return false;
+        }
+        throw new ExceedLimitException("Mail queue is full, please try again later");
+    }
+
+    private MailOutboxEntity toOutboxEntity(MailDTO mailDTO) {
+        return MailOutboxEntity.builder()
+                .recipients(String.join(RECIPIENT_DELIMITER, mailDTO.getTo()))
+                .subject(mailDTO.getSubject())
+                .body(mailDTO.getBody())
+                .build();
     }
 
 }
@@ -1,5 +1,8 @@
 package az.gdg.msauth.service.impl;
 
+import az.gdg.msauth.cache.PopularityCounter;
+import az.gdg.msauth.cache.PopularityLeaderboard;
+import az.gdg.msauth.cache.UserDetailCache;
 import az.gdg.msauth.client.MsStorageClient;
 import az.gdg.msauth.dao.UserRepository;
 import az.gdg.msauth.exception.ExceedLimitException;
@@ -7,6 +10,7 @@ import az.gdg.msauth.exception.NotAllowedException;
 import az.gdg.msauth.exception.NotFoundException;
 import az.gdg.msauth.exception.StorageException;
 import az.gdg.msauth.exception.WrongDataException;
+import az.gdg.msauth.mail.MailTemplates;
 import az.gdg.msauth.mapper.UserMapper;
 import az.gdg.msauth.model.dto.MailDTO;
 import az.gdg.msauth.model.dto.UserDTO;
@@ -15,41 +19,72 @@ import az.gdg.msauth.model.entity.UserEntity;
 import az.gdg.msauth.security.model.Role;
 import az.gdg.msauth.security.model.Status;
 import az.gdg.msauth.security.model.dto.UserInfo;
+import az.gdg.msauth.security.service.TokenRevocationService;
+import az.gdg.msauth.security.util.PasswordHasher;
 import az.gdg.msauth.security.util.TokenUtil;
 import az.gdg.msauth.service.MailService;
 import az.gdg.msauth.service.UserService;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.scheduling.annotation.Scheduled;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 
 @Service
 public class UserServiceImpl implements UserService {
 
     private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
+    private static final int DAILY_QUACK_COUNT = 500;
+    private static final int DAILY_HATE_COUNT = 500;
+    private static final int USER_IDS_CHUNK_SIZE = 500;
     private final UserRepository userRepository;
     private final TokenUtil tokenUtil;
     private final MsStorageClient msStorageClient;
     private final MailService mailService;
+    private final MailTemplates mailTemplates;
+    private final UserDetailCache userDetailCache;
+    private final PopularityLeaderboard popularityLeaderboard;
+    private final PopularityCounter popularityCounter;
+    private final PasswordHasher passwordHasher;
+    private final TokenRevocationService tokenRevocationService;
+    private final TransactionTemplate transactionTemplate;
 
     public UserServiceImpl(UserRepository userRepository, MsStorageClient msStorageClient,
-                           MailService mailService, TokenUtil tokenUtil) {
+                           MailService mailService, MailTemplates mailTemplates, TokenUtil tokenUtil,
+                           UserDetailCache userDetailCache, PopularityLeaderboard popularityLeaderboard,
+                           PopularityCounter popularityCounter, PasswordHasher passwordHasher,
+                           TokenRevocationService tokenRevocationService,
+                           PlatformTransactionManager transactionManager) {
         this.userRepository = userRepository;
         this.msStorageClient = msStorageClient;
         this.mailService = mailService;
+        this.mailTemplates = mailTemplates;
         this.tokenUtil = tokenUtil;
+        this.userDetailCache = userDetailCache;
+        this.popularityLeaderboard = popularityLeaderboard;
+        this.popularityCounter = popularityCounter;
+        this.passwordHasher = passwordHasher;
+        this.tokenRevocationService = tokenRevocationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
+    // password is hashed before the transaction, so no connection is held while waiting for hashing
+    @Timed(value = "auth.signup", description = "Sign up including password hashing and outbox write")
     public void signUp(UserDTO userDTO) {
         logger.info("ServiceLog.signUp user.start.email : {} ", userDTO.getMail());
 
@@ -60,33 +95,37 @@ public class UserServiceImpl implements UserService {
             }
 
             String token = tokenUtil.generateTokenWithEmail(userDTO.getMail());
-            String password = new BCryptPasswordEncoder().encode(userDTO.getPassword());
+            String password = passwordHasher.encode(userDTO.getPassword());
             UserEntity userEntity = UserEntity
                     .builder()
                     .firstName(userDTO.getFirstName())
                     .lastName(userDTO.getLastName())
                     .username(userDTO.getMail())
                     .mail(userDTO.getMail())
-                    .remainingQuackCount(500)
-                    .remainingHateCount(500)
+                    .remainingQuackCount(DAILY_QUACK_COUNT)
+                    .remainingHateCount(DAILY_HATE_COUNT)
+                    .quotaDay(LocalDate.now())
                     .password(password)
                     .popularity(0)
                     .role(Role.ROLE_USER)
                     .status(Status.REGISTERED)
                     .build();
 
-            userRepository.save(userEntity);
-
             MailDTO mail = MailDTO.builder()
                     .to(Collections.singletonList(userDTO.getMail()))
                     .subject("Your registration letter")
-                    .body("<h2>" + "Verify Account" + "</h2>" + "</br>" +
-                            "<a href=" +
-                            "https://gdg-ms-auth.herokuapp.com/user/verify-account?token=" + token + ">" +
-                            "https://gdg-ms-auth.herokuapp.com/user/verify-account?token=" + token + "</a>")
+                    .body(mailTemplates.verifyAccount(token))
                     .build();
 
-            mailService.sendToQueue(mail);
+            // concurrent sign ups with the same mail both pass the check above, uk_users_mail rejects the second one
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    userRepository.save(userEntity);
+                    mailService.sendToQueue(mail);
+                });
+            } catch (DataIntegrityViolationException e) {
+                throw new WrongDataException("This email already exists");
+            }
 
 
             logger.info("ServiceLog.signUp user.stop.success.email : {}", userDTO.getMail());
@@ -97,7 +136,9 @@ public class UserServiceImpl implements UserService {
 
     }
 
+    // tokens carry status, so tokens issued with the old status are revoked
     @Override
+    @Transactional
     public void verifyAccount(String token) {
         logger.info("ServiceLog.verifyAccount.start");
         String mail = tokenUtil.getMailFromToken(token);
@@ -106,6 +147,7 @@ public class UserServiceImpl implements UserService {
         if (user != null) {
             user.setStatus(Status.CONFIRMED);
             userRepository.save(user);
+            tokenRevocationService.revokeTokens(mail);
         } else {
             throw new NotFoundException("Not found such user");
         }
@@ -115,6 +157,7 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    @Transactional
     public void sendResetPasswordLinkToMail(String mail) {
         logger.info("ServiceLog.sendResetPasswordLinkToMail.start.mail : {}", mail);
         UserEntity user = userRepository.findByMail(mail);
@@ -126,10 +169,7 @@ public class UserServiceImpl implements UserService {
             MailDTO mailDTO = MailDTO.builder()
                     .to(Collections.singletonList(mail))
                     .subject("Your reset password letter")
-                    .body("<h2>" + "Reset Password" + "</h2>" + "</br>" +
-                            "<a href=" +
-                            "http://virustat.org/reset.html?token=" + token + ">" +
-                            "http://virustat.org/reset.html?token=" + token + "</a>")
+                    .body(mailTemplates.resetPassword(token))
                     .build();
 
             mailService.sendToQueue(mailDTO);
@@ -142,6 +182,7 @@ public class UserServiceImpl implements UserService {
 
     }
 
+    // password is checked and hashed before the transaction, so no connection is held while waiting for hashing
     @Override
     public void changePassword(String token, String password) {
         logger.info("ServiceLog.changePassword.start");
@@ -150,12 +191,22 @@ public class UserServiceImpl implements UserService {
         UserEntity user = userRepository.findByMail(mail);
 
         if (user != null) {
-            boolean check = new BCryptPasswordEncoder().matches(password, user.getPassword());
+            boolean check = passwordHasher.matches(password, user.getPassword());
 
             if (!check) {
-                String newPassword = new BCryptPasswordEncoder().encode(password);
-                user.setPassword(newPassword);
-                userRepository.save(user);
+                String newPassword = passwordHasher.encode(password);
+                MailDTO mailDTO = MailDTO.builder()
+                        .to(Collections.singletonList(mail))
+                        .subject("Successfully Changed")
+                        .body(mailTemplates.passwordChanged())
+                        .build();
+
+                // only password is written, user was read outside of the transaction
+                transactionTemplate.executeWithoutResult(status -> {
+                    userRepository.updatePassword(mail, newPassword);
+                    tokenRevocationService.revokeTokens(mail);
+                    mailService.sendToQueue(mailDTO);
+                });
             } else {
                 throw new WrongDataException("Please, enter the password different from last one");
             }
@@ -165,118 +216,103 @@ public class UserServiceImpl implements UserService {
             throw new NotFoundException("Not found such user!");
         }
 
-        MailDTO mailDTO = MailDTO.builder()
-                .to(Collections.singletonList(mail))
-                .subject("Successfully Changed")
-                .body("<h2>" + "Your password has been changed successfully" + "</h2>")
-                .build();
-
-        mailService.sendToQueue(mailDTO);
-
         logger.info("ServiceLog.changePassword.stop.success");
 
     }
 
+    // no transaction around cache reads, misses are loaded by read-only repository calls which may go to replica
     @Override
     public UserDetail getUserById(Long id) {
-        logger.info("ServiceLog.getUserById.start.id : {}", id);
+        logger.debug("ServiceLog.getUserById.start.id : {}", id);
 
-        UserEntity user = userRepository.findById(id).orElseThrow(
-                () -> new NotFoundException("Not found such user")
-        );
+        UserDetail userDetail = userDetailCache.get(id, this::loadUserDetail);
 
-        logger.info("ServiceLog.getUserById.success.id : {}", id);
+        logger.debug("ServiceLog.getUserById.success.id : {}", id);
 
-        return UserMapper.INSTANCE.entityToDto(user);
+        return userDetail;
 
     }
 
     @Override
     public List<UserDetail> getUsersById(List<Long> userIds) {
-        logger.info("ServiceLog.getUsersById.start.userIds : {}", userIds);
+        logger.debug("ServiceLog.getUsersById.start.userIds : {}", userIds);
+
+        List<Long> distinctIds = userIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, UserDetail> foundUserDetails = userDetailCache.getAll(distinctIds, this::findUserDetails);
 
-        List<UserDetail> userDetails = new ArrayList<>();
+        List<UserDetail> userDetails = new ArrayList<>(userIds.size());
         for (Long userId : userIds) {
-            userRepository.findById(userId)
-                    .ifPresent(userEntity -> userDetails.add(UserMapper.INSTANCE.entityToDto(userEntity)));
+            UserDetail userDetail = foundUserDetails.get(userId);
+            if (userDetail != null) {
+                userDetails.add(userDetail);
+            }
         }
 
-        logger.info("ServiceLog.getUsersById.stop.success");
+        logger.debug("ServiceLog.getUsersById.stop.success");
 
         return userDetails;
     }
 
     @Override
     public void addPopularity(Long userId) {
-        logger.info("ServiceLog.addPopularity.start.userId : {}", userId);
-        UserEntity user = userRepository.findById(userId).orElseThrow(
-                () -> new NotFoundException("Not found such user")
-        );
+        logger.debug("ServiceLog.addPopularity.start.userId : {}", userId);
+        // cached lookup keeps NotFoundException for unknown users, increment itself is written on next flush
+        userDetailCache.get(userId, this::loadUserDetail);
+        popularityCounter.increment(userId);
 
-        user.setPopularity(user.getPopularity() + 1);
-        userRepository.save(user);
-
-        logger.info("ServiceLog.addPopularity.stop.success.userId : {}", userId);
+        logger.debug("ServiceLog.addPopularity.stop.success.userId : {}", userId);
     }
 
     @Override
-    @Cacheable(value = "populars")
     public List<UserDetail> getPopularUsers() {
-        logger.info("ServiceLog.getPopularUsers.start");
-        List<UserEntity> users = userRepository.findFirst3ByOrderByPopularityDesc();
-
-        List<UserDetail> populars = UserMapper.INSTANCE.entityToDtoList(users);
-        logger.info("ServiceLog.getPopularUsers.stop.success");
+        logger.debug("ServiceLog.getPopularUsers.start");
+        List<UserDetail> populars = popularityLeaderboard.getTopUsers();
+        logger.debug("ServiceLog.getPopularUsers.stop.success");
         return populars;
     }
 
     @Override
     public void updateRemainingQuackCount(String token) {
-        logger.info("ServiceLog.updateRemainingQuackCount.start");
+        logger.debug("ServiceLog.updateRemainingQuackCount.start");
         UserInfo userInfo = tokenUtil.getUserInfoFromToken(token);
         Long userId = Long.parseLong(userInfo.getUserId());
 
-        UserEntity userEntity = userRepository.findById(userId).orElseThrow(
-                () -> new NotFoundException("Not found such user")
-        );
-
-        if (userEntity.getRemainingQuackCount() > 0) {
-            userEntity.setRemainingQuackCount(userEntity.getRemainingQuackCount() - 1);
-            userRepository.save(userEntity);
-        } else {
+        if (userRepository.decreaseRemainingQuackCount(userId, LocalDate.now(),
+                DAILY_QUACK_COUNT, DAILY_HATE_COUNT) == 0) {
+            checkUserExists(userId);
             throw new ExceedLimitException("You've already used your daily quacks!");
         }
 
-        logger.info("ServiceLog.updateRemainingQuackCount.stop.success");
+        logger.debug("ServiceLog.updateRemainingQuackCount.stop.success");
 
 
     }
 
     @Override
     public void updateRemainingHateCount(String token) {
-        logger.info("ServiceLog.updateRemainingHateCount.start");
+        logger.debug("ServiceLog.updateRemainingHateCount.start");
         UserInfo userInfo = tokenUtil.getUserInfoFromToken(token);
         Long userId = Long.parseLong(userInfo.getUserId());
 
-        UserEntity userEntity = userRepository.findById(userId).orElseThrow(
-                () -> new NotFoundException("Not found such user")
-        );
-
-        if (userEntity.getRemainingHateCount() > 0) {
-            userEntity.setRemainingHateCount(userEntity.getRemainingHateCount() - 1);
-            userRepository.save(userEntity);
-        } else {
+        if (userRepository.decreaseRemainingHateCount(userId, LocalDate.now(),
+                DAILY_QUACK_COUNT, DAILY_HATE_COUNT) == 0) {
+            checkUserExists(userId);
             throw new ExceedLimitException("You've already used your daily hates!");
         }
 
 
-        logger.info("ServiceLog.updateRemainingHateCount.stop.success");
+        logger.debug("ServiceLog.updateRemainingHateCount.stop.success");
 
     }
 
+    // read-write transaction keeps the read on primary, a replica may not have the last update of the count yet
     @Override
+    @Transactional
     public Integer getRemainingQuackCount(String token) {
-        logger.info("ServiceLog.getRemainingQuackCount.start");
+        logger.debug("ServiceLog.getRemainingQuackCount.start");
         UserInfo userInfo = tokenUtil.getUserInfoFromToken(token);
         Long userId = Long.parseLong(userInfo.getUserId());
 
@@ -284,13 +320,15 @@ public class UserServiceImpl implements UserService {
                 () -> new NotFoundException("Not found such user")
         );
 
-        logger.info("ServiceLog.getRemainingQuackCount.stop.success");
-        return userEntity.getRemainingQuackCount();
+        logger.debug("ServiceLog.getRemainingQuackCount.stop.success");
+        return isQuotaDayPassed(userEntity) ? DAILY_QUACK_COUNT : userEntity.getRemainingQuackCount();
     }
 
+    // read-write transaction keeps the read on primary, a replica may not have the last update of the count yet
     @Override
+    @Transactional
     public Integer getRemainingHateCount(String token) {
-        logger.info("ServiceLog.getRemainingHateCount.start");
+        logger.debug("ServiceLog.getRemainingHateCount.start");
         UserInfo userInfo = tokenUtil.getUserInfoFromToken(token);
         Long userId = Long.parseLong(userInfo.getUserId());
 
@@ -298,27 +336,8 @@ public class UserServiceImpl implements UserService {
                 () -> new NotFoundException("Not found such user")
         );
 
-        logger.info("ServiceLog.getRemainingHateCount.stop.success");
-        return userEntity.getRemainingHateCount();
-    }
-
-    @Override
-    @Scheduled(cron = "0 52 23 * * ?")  // at 23:59 every day
-    public void refreshRemainingQuackAndHateCount() {
-        logger.info("ServiceLog.refreshRemainingQuackAndHateCount.start");
-        List<UserEntity> users = userRepository.findAll();
-        if (!users.isEmpty()) {
-            users
-                    .forEach(userEntity -> {
-                        userEntity.setRemainingQuackCount(500);
-                        userEntity.setRemainingHateCount(500);
-                        userRepository.save(userEntity);
-                    });
-        } else {
-            throw new NotFoundException("There isn't any user in database");
-        }
-
-        logger.info("ServiceLog.refreshRemainingQuackAndHateCount.stop.success");
+        logger.debug("ServiceLog.getRemainingHateCount.stop.success");
+        return isQuotaDayPassed(userEntity) ? DAILY_HATE_COUNT : userEntity.getRemainingHateCount();
     }
 
     @Override
@@ -330,7 +349,8 @@ public class UserServiceImpl implements UserService {
         logger.info("ServiceLog.updateImage.fileName : {} ", fileName);
 
         UserInfo userInfo = tokenUtil.getUserInfoFromToken(token);
-        UserEntity userEntity = userRepository.findById(Long.parseLong(userInfo.getUserId())).orElseThrow(
+        Long userId = Long.parseLong(userInfo.getUserId());
+        UserEntity userEntity = userRepository.findById(userId).orElseThrow(
                 () -> new NotFoundException("Not found such user")
         );
 
@@ -343,9 +363,41 @@ public class UserServiceImpl implements UserService {
         userEntity.setImageUrl(imageUrl);
 
         userRepository.save(userEntity);
+        userDetailCache.evict(userId);
+        popularityLeaderboard.updateUserDetail(UserMapper.INSTANCE.entityToDto(userEntity));
 
         logger.info("ServiceLog.updateImage.stop.success.fileName : {} ", multipartFile.get(0).getOriginalFilename());
     }
 
+    private UserDetail loadUserDetail(Long id) {
+        UserEntity user = userRepository.findById(id).orElseThrow(
+                () -> new NotFoundException("Not found such user")
+        );
+        return UserMapper.INSTANCE.entityToDto(user);
+    }
+
+    // ids are fetched with bounded IN clauses
+    private Map<Long, UserDetail> findUserDetails(List<Long> userIds) {
+        Map<Long, UserDetail> userDetails = new HashMap<>();
+        for (int from = 0; from < userIds.size(); from += USER_IDS_CHUNK_SIZE) {
+            List<Long> chunk = userIds.subList(from, Math.min(from + USER_IDS_CHUNK_SIZE, userIds.size()));
+            userRepository.findUserDetailsByIdIn(chunk)
+                    .forEach(userDetail -> userDetails.put(userDetail.getId(), userDetail));
+        }
+        return userDetails;
+    }
+
+    // counters are reset lazily, stored ones belong to quota day only
+    private boolean isQuotaDayPassed(UserEntity userEntity) {
+        return !LocalDate.now().equals(userEntity.getQuotaDay());
+    }
+
+    // decrease statements don't tell missing user apart from used up limit, so it is checked on failure only
+    private void checkUserExists(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new NotFoundException("Not found such user");
+        }
+    }
+
 
 }
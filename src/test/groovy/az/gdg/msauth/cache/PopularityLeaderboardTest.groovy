@@ -0,0 +1,100 @@
+package az.gdg.msauth.cache
+
+import az.gdg.msauth.dao.UserRepository
+import az.gdg.msauth.model.dto.UserDetail
+import az.gdg.msauth.model.dto.UserPopularity
+import az.gdg.msauth.model.entity.UserEntity
+import org.springframework.data.domain.PageRequest
+import spock.lang.Specification
+import spock.lang.Title
+
+@Title("Testing for popularity leaderboard")
+class PopularityLeaderboardTest extends Specification {
+
+    private UserRepository userRepository
+    private PopularityLeaderboard popularityLeaderboard
+
+    def setup() {
+        userRepository = Mock()
+        popularityLeaderboard = new PopularityLeaderboard(userRepository, 2)
+    }
+
+    def "rebuild leaderboard from database"() {
+        given:
+        def first = new UserEntity()
+        first.setId(1)
+        first.setPopularity(10)
+        def second = new UserEntity()
+        second.setId(2)
+        second.setPopularity(5)
+
+        when:
+        popularityLeaderboard.rebuild()
+
+        then:
+        1 * userRepository.findAllByOrderByPopularityDesc(PageRequest.of(0, 2)) >> [first, second]
+        popularityLeaderboard.getTopUsers()*.id == [1L, 2L]
+        popularityLeaderboard.isWarmedUp()
+    }
+
+    def "keep only most popular users ordered by popularity"() {
+        when:
+        popularityLeaderboard.offer(userDetail(1), 3)
+        popularityLeaderboard.offer(userDetail(2), 5)
+        popularityLeaderboard.offer(userDetail(3), 4)
+
+        then:
+        popularityLeaderboard.getTopUsers()*.id == [2L, 3L]
+    }
+
+    def "don't add user whose popularity is lower than popularity of last user"() {
+        when:
+        popularityLeaderboard.offer(userDetail(1), 3)
+        popularityLeaderboard.offer(userDetail(2), 5)
+        popularityLeaderboard.offer(userDetail(3), 2)
+
+        then:
+        popularityLeaderboard.getTopUsers()*.id == [2L, 1L]
+    }
+
+    def "move user up when popularity of user increases"() {
+        when:
+        popularityLeaderboard.offer(userDetail(1), 3)
+        popularityLeaderboard.offer(userDetail(2), 5)
+        popularityLeaderboard.offer(userDetail(1), 6)
+
+        then:
+        popularityLeaderboard.getTopUsers()*.id == [1L, 2L]
+    }
+
+    def "update detail of user who is on leaderboard"() {
+        given:
+        popularityLeaderboard.offer(userDetail(1), 3)
+        def updated = UserDetail.builder().id(1L).imageUrl("image.png").build()
+
+        when:
+        popularityLeaderboard.updateUserDetail(updated)
+
+        then:
+        popularityLeaderboard.getTopUsers() == [updated]
+    }
+
+    def "update popularity of users on leaderboard and return users who can enter it"() {
+        given:
+        popularityLeaderboard.offer(userDetail(1), 3)
+        popularityLeaderboard.offer(userDetail(2), 5)
+
+        when:
+        def candidates = popularityLeaderboard.updatePopularities([new UserPopularity(1, 7),
+                                                                   new UserPopularity(3, 6),
+                                                                   new UserPopularity(4, 4)])
+
+        then:
+        candidates == [3L]
+        popularityLeaderboard.getTopUsers()*.id == [1L, 2L]
+    }
+
+    private static UserDetail userDetail(long id) {
+        return UserDetail.builder().id(id).build()
+    }
+}
@@ -0,0 +1,63 @@
+package az.gdg.msauth.config
+
+import az.gdg.msauth.cache.NamedCacheLoader
+import com.github.benmanes.caffeine.cache.LoadingCache
+import org.springframework.beans.factory.ObjectProvider
+import org.springframework.cache.caffeine.CaffeineCache
+import spock.lang.Specification
+import spock.lang.Title
+
+import java.util.stream.Stream
+
+@Title("Testing for cache config")
+class CacheConfigTest extends Specification {
+
+    private CacheSpecProperties cacheSpecProperties = new CacheSpecProperties()
+
+    def "build loading cache for cache which has a loader and plain cache for the others"() {
+        given:
+        cacheSpecProperties.getSpecs().put("users", new CacheSpecProperties.CacheSpec())
+        cacheSpecProperties.getSpecs().put("images", new CacheSpecProperties.CacheSpec())
+
+        when:
+        def cacheManager = new CacheConfig().cacheManager(cacheSpecProperties, loaders(loader("users")))
+        cacheManager.afterPropertiesSet()
+
+        then:
+        nativeCache(cacheManager.getCache("users")) instanceof LoadingCache
+        !(nativeCache(cacheManager.getCache("images")) instanceof LoadingCache)
+        nativeCache(cacheManager.getCache("users")).get(1L) == "users-1"
+    }
+
+    def "fail if two loaders load the same cache"() {
+        when:
+        new CacheConfig().cacheManager(cacheSpecProperties, loaders(loader("users"), loader("users")))
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    private static Object nativeCache(org.springframework.cache.Cache cache) {
+        ((CaffeineCache) cache).getNativeCache()
+    }
+
+    private ObjectProvider<NamedCacheLoader<?, ?>> loaders(NamedCacheLoader<?, ?>... loaders) {
+        ObjectProvider<NamedCacheLoader<?, ?>> provider = Stub()
+        provider.orderedStream() >> { Stream.of(loaders) }
+        provider
+    }
+
+    private static NamedCacheLoader<Long, String> loader(String name) {
+        new NamedCacheLoader<Long, String>() {
+            @Override
+            String cacheName() {
+                name
+            }
+
+            @Override
+            String load(Long key) {
+                name + "-" + key
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package az.gdg.msauth.config
+
+import com.zaxxer.hikari.HikariDataSource
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.beans.factory.ObjectProvider
+import spock.lang.Specification
+import spock.lang.Title
+
+import java.time.Duration
+
+@Title("Testing for hikari pool post processor")
+class HikariPoolPostProcessorTest extends Specification {
+
+    private ObjectProvider<MeterRegistry> meterRegistry
+
+    def setup() {
+        meterRegistry = Stub()
+        meterRegistry.ifAvailable(_) >> { args -> args[0].accept(new SimpleMeterRegistry()) }
+    }
+
+    def "derive pool size from cores and apply driver properties"() {
+        given:
+        def postProcessor = new HikariPoolPostProcessor(new DataSourcePoolProperties(), meterRegistry)
+        def dataSource = new HikariDataSource()
+
+        when:
+        postProcessor.postProcessAfterInitialization(dataSource, "dataSource")
+
+        then:
+        dataSource.getMaximumPoolSize() == Runtime.getRuntime().availableProcessors() * 2 + 1
+        dataSource.getMinimumIdle() == dataSource.getMaximumPoolSize()
+        dataSource.getConnectionTimeout() == 5000
+        dataSource.getDataSourceProperties().getProperty("rewriteBatchedStatements") == "true"
+        dataSource.getDataSourceProperties().getProperty("useServerPrepStmts") == "true"
+        dataSource.getMetricsTrackerFactory() != null
+    }
+
+    def "use configured pool size"() {
+        given:
+        def poolProperties = new DataSourcePoolProperties()
+        poolProperties.setMaximumPoolSize(4)
+        poolProperties.setMinimumIdle(2)
+        poolProperties.setConnectionTimeout(Duration.ofSeconds(1))
+        def postProcessor = new HikariPoolPostProcessor(poolProperties, meterRegistry)
+        def dataSource = new HikariDataSource()
+
+        when:
+        postProcessor.postProcessAfterInitialization(dataSource, "dataSource")
+
+        then:
+        dataSource.getMaximumPoolSize() == 4
+        dataSource.getMinimumIdle() == 2
+        dataSource.getConnectionTimeout() == 1000
+    }
+
+    def "keep values set by pool's own properties"() {
+        given:
+        def postProcessor = new HikariPoolPostProcessor(new DataSourcePoolProperties(), meterRegistry)
+        def dataSource = new HikariDataSource()
+        dataSource.setMaximumPoolSize(20)
+        dataSource.setMinimumIdle(5)
+        dataSource.setConnectionTimeout(2000)
+        dataSource.setMaxLifetime(600000)
+        dataSource.addDataSourceProperty("prepStmtCacheSize", "500")
+
+        when:
+        postProcessor.postProcessAfterInitialization(dataSource, "replicaDataSource")
+
+        then:
+        dataSource.getMaximumPoolSize() == 20
+        dataSource.getMinimumIdle() == 5
+        dataSource.getConnectionTimeout() == 2000
+        dataSource.getMaxLifetime() == 600000
+        dataSource.getDataSourceProperties().getProperty("prepStmtCacheSize") == "500"
+        dataSource.getDataSourceProperties().getProperty("cachePrepStmts") == "true"
+    }
+
+    def "leave other beans untouched"() {
+        given:
+        def postProcessor = new HikariPoolPostProcessor(new DataSourcePoolProperties(), meterRegistry)
+        def bean = new Object()
+
+        expect:
+        postProcessor.postProcessAfterInitialization(bean, "bean").is(bean)
+    }
+}
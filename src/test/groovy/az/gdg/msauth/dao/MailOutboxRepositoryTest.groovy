@@ -0,0 +1,122 @@
+package az.gdg.msauth.dao
+
+import liquibase.Liquibase
+import liquibase.database.jvm.JdbcConnection
+import liquibase.resource.ClassLoaderResourceAccessor
+import org.springframework.data.domain.PageRequest
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.jdbc.datasource.DriverManagerDataSource
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter
+import org.testcontainers.DockerClientFactory
+import org.testcontainers.containers.MySQLContainer
+import spock.lang.Requires
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Timeout
+import spock.lang.Title
+
+import javax.persistence.EntityManager
+import javax.persistence.EntityManagerFactory
+import java.time.LocalDateTime
+
+// claims of two relays must not block each other, needs docker for mysql container
+@Title("Testing for claiming mail outbox rows")
+@Requires({ DockerClientFactory.instance().isDockerAvailable() })
+class MailOutboxRepositoryTest extends Specification {
+
+    @Shared
+    private MySQLContainer mysql = new MySQLContainer("mysql:8.0")
+    @Shared
+    private LocalContainerEntityManagerFactoryBean entityManagerFactoryBean
+    @Shared
+    private JdbcTemplate jdbcTemplate
+
+    def setupSpec() {
+        mysql.start()
+        def dataSource = new DriverManagerDataSource(mysql.getJdbcUrl(), mysql.getUsername(), mysql.getPassword())
+        def connection = dataSource.getConnection()
+        new Liquibase("liquibase/changelog-master.yml", new ClassLoaderResourceAccessor(),
+                new JdbcConnection(connection)).update("")
+        connection.close()
+        jdbcTemplate = new JdbcTemplate(dataSource)
+
+        // same dialect as application.yml
+        entityManagerFactoryBean = new LocalContainerEntityManagerFactoryBean()
+        entityManagerFactoryBean.setDataSource(dataSource)
+        entityManagerFactoryBean.setPackagesToScan("az.gdg.msauth.model.entity")
+        entityManagerFactoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter())
+        entityManagerFactoryBean.setJpaPropertyMap(["hibernate.dialect": "org.hibernate.dialect.MySQL8Dialect"])
+        entityManagerFactoryBean.afterPropertiesSet()
+    }
+
+    def cleanupSpec() {
+        entityManagerFactoryBean?.destroy()
+        mysql.stop()
+    }
+
+    def setup() {
+        jdbcTemplate.update("delete from mail_outbox")
+        (1..4).each {
+            jdbcTemplate.update("insert into mail_outbox (recipients, subject, body, created_at) " +
+                    "values ('user" + it + "@mail.ru', 'subject', 'body', now())")
+        }
+    }
+
+    @Timeout(30)
+    def "skip rows which are locked by claim of another relay"() {
+        given:
+        EntityManagerFactory entityManagerFactory = entityManagerFactoryBean.getObject()
+        EntityManager first = entityManagerFactory.createEntityManager()
+        EntityManager second = entityManagerFactory.createEntityManager()
+        def now = LocalDateTime.now()
+
+        when:
+        first.getTransaction().begin()
+        def firstClaim = repository(first).findClaimable(now, PageRequest.of(0, 2))
+        second.getTransaction().begin()
+        def secondClaim = repository(second).findClaimable(now, PageRequest.of(0, 2))
+        second.getTransaction().commit()
+        first.getTransaction().commit()
+
+        then:
+        firstClaim*.getId().size() == 2
+        secondClaim*.getId().size() == 2
+        Collections.disjoint(firstClaim*.getId(), secondClaim*.getId())
+
+        cleanup:
+        first.close()
+        second.close()
+    }
+
+    def "don't claim rows which are claimed until a later time"() {
+        given:
+        EntityManager entityManager = entityManagerFactoryBean.getObject().createEntityManager()
+        def repository = repository(entityManager)
+        def now = LocalDateTime.now()
+
+        when:
+        entityManager.getTransaction().begin()
+        def claimed = repository.findClaimable(now, PageRequest.of(0, 3))
+        repository.claim(claimed*.getId(), now.plusMinutes(1))
+        entityManager.getTransaction().commit()
+
+        entityManager.clear()
+        entityManager.getTransaction().begin()
+        def next = repository.findClaimable(now, PageRequest.of(0, 3))
+        entityManager.getTransaction().commit()
+
+        then:
+        claimed.size() == 3
+        next*.getId() == [claimed.last().getId() + 1]
+        repository.countPending() == 4
+
+        cleanup:
+        entityManager.close()
+    }
+
+    private static MailOutboxRepository repository(EntityManager entityManager) {
+        new JpaRepositoryFactory(entityManager).getRepository(MailOutboxRepository)
+    }
+}
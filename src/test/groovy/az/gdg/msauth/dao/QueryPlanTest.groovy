@@ -0,0 +1,86 @@
+package az.gdg.msauth.dao
+
+import liquibase.Liquibase
+import liquibase.database.jvm.JdbcConnection
+import liquibase.resource.ClassLoaderResourceAccessor
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.jdbc.datasource.SingleConnectionDataSource
+import org.testcontainers.DockerClientFactory
+import org.testcontainers.containers.MySQLContainer
+import spock.lang.Requires
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Title
+
+import java.sql.Timestamp
+
+// fails when hot user queries stop using their indexes, needs docker for mysql container
+@Title("Testing for query plans of hot user queries")
+@Requires({ DockerClientFactory.instance().isDockerAvailable() })
+class QueryPlanTest extends Specification {
+
+    private static final int USER_COUNT = 2000
+
+    @Shared
+    private MySQLContainer mysql = new MySQLContainer("mysql:8.0")
+    @Shared
+    private SingleConnectionDataSource dataSource
+    @Shared
+    private JdbcTemplate jdbcTemplate
+
+    def setupSpec() {
+        mysql.start()
+        dataSource = new SingleConnectionDataSource(mysql.getJdbcUrl(), mysql.getUsername(), mysql.getPassword(), true)
+        new Liquibase("liquibase/changelog-master.yml", new ClassLoaderResourceAccessor(),
+                new JdbcConnection(dataSource.getConnection())).update("")
+
+        def now = new Timestamp(System.currentTimeMillis())
+        def rows = (1..USER_COUNT).collect {
+            ["user" + it + "@mail.ru", "User", "User", "hash", "ROLE_USER", "CONFIRMED", it % 100,
+             "user" + it + "@mail.ru", now, now, 500, 500] as Object[]
+        }
+        jdbcTemplate = new JdbcTemplate(dataSource)
+        jdbcTemplate.batchUpdate("insert into users (mail, first_name, last_name, password, role, status, " +
+                "popularity, username, created_at, updated_at, remaining_quack_count, remaining_hate_count) " +
+                "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows)
+        jdbcTemplate.execute("analyze table users")
+    }
+
+    def cleanupSpec() {
+        dataSource?.destroy()
+        mysql.stop()
+    }
+
+    def "find user by mail uses unique index"() {
+        when:
+        def plan = explain("select * from users where mail = 'user1000@mail.ru'")
+
+        then:
+        plan.type != "ALL"
+        plan.key == "uk_users_mail"
+    }
+
+    def "popular users are read from popularity index"() {
+        when:
+        def plan = explain("select * from users order by popularity desc limit 3")
+
+        then:
+        plan.type != "ALL"
+        plan.key == "idx_users_popularity"
+    }
+
+    def "duplicate mail is rejected by database"() {
+        when:
+        jdbcTemplate.update("insert into users (mail, first_name, last_name, password, role, status, " +
+                "popularity, username, created_at, updated_at, remaining_quack_count, remaining_hate_count) " +
+                "values ('user1@mail.ru', 'User', 'User', 'hash', 'ROLE_USER', 'CONFIRMED', 0, 'user1@mail.ru', " +
+                "now(), now(), 500, 500)")
+
+        then:
+        thrown(org.springframework.dao.DuplicateKeyException)
+    }
+
+    private Map<String, Object> explain(String query) {
+        jdbcTemplate.queryForList("explain " + query).first()
+    }
+}
@@ -0,0 +1,85 @@
+package az.gdg.msauth.datasource
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.jdbc.datasource.DataSourceTransactionManager
+import org.springframework.jdbc.datasource.DriverManagerDataSource
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy
+import org.springframework.transaction.support.TransactionTemplate
+import spock.lang.Specification
+import spock.lang.Title
+
+import javax.sql.DataSource
+import java.time.Duration
+
+@Title("Testing for read replica routing")
+class ReplicaRoutingDataSourceTest extends Specification {
+
+    private DataSource primary
+    private DataSource replica
+    private JdbcTemplate jdbcTemplate
+    private TransactionTemplate transactionTemplate
+    private SimpleMeterRegistry meterRegistry
+
+    def setup() {
+        primary = database("primary")
+        replica = database("replica")
+        new JdbcTemplate(replica).execute("create table replication_status (lag_seconds bigint)")
+        new JdbcTemplate(replica).update("insert into replication_status values (0)")
+        meterRegistry = new SimpleMeterRegistry()
+    }
+
+    def "route read only transactions to replica and others to primary"() {
+        given:
+        routing(Duration.ofSeconds(10))
+
+        expect:
+        readInTransaction(true) == "replica"
+        readInTransaction(false) == "primary"
+        jdbcTemplate.queryForObject("select name from node", String) == "primary"
+        meterRegistry.get("datasource.routing").tag("pool", "replica").counter().count() == 1
+    }
+
+    def "route read only transactions to primary while replica lags behind"() {
+        given:
+        new JdbcTemplate(replica).update("update replication_status set lag_seconds = 60")
+        routing(Duration.ofSeconds(10))
+
+        expect:
+        readInTransaction(true) == "primary"
+        meterRegistry.get("datasource.routing").tag("fallback", "true").counter().count() == 1
+    }
+
+    def "route read only transactions to primary if replication isn't running"() {
+        given:
+        new JdbcTemplate(replica).update("update replication_status set lag_seconds = null")
+        routing(Duration.ofSeconds(10))
+
+        expect:
+        readInTransaction(true) == "primary"
+    }
+
+    private void routing(Duration maxLag) {
+        def monitor = new ReplicaLagMonitor(replica, maxLag, "select lag_seconds from replication_status",
+                "LAG_SECONDS")
+        monitor.check()
+        def dataSource = new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primary, replica, monitor, meterRegistry))
+        jdbcTemplate = new JdbcTemplate(dataSource)
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource))
+    }
+
+    private String readInTransaction(boolean readOnly) {
+        transactionTemplate.setReadOnly(readOnly)
+        transactionTemplate.execute { jdbcTemplate.queryForObject("select name from node", String) }
+    }
+
+    private static DataSource database(String name) {
+        def dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + UUID.randomUUID() +
+                ";DB_CLOSE_DELAY=-1", "sa", "")
+        def jdbcTemplate = new JdbcTemplate(dataSource)
+        jdbcTemplate.execute("create table node (name varchar(20))")
+        jdbcTemplate.update("insert into node values (?)", name)
+        dataSource
+    }
+}
@@ -0,0 +1,62 @@
+package az.gdg.msauth.health
+
+import org.springframework.boot.actuate.health.Health
+import org.springframework.boot.actuate.health.HealthIndicator
+import org.springframework.boot.actuate.health.Status
+import spock.lang.Specification
+import spock.lang.Title
+
+import java.time.Duration
+
+@Title("Testing for cached health indicator")
+class CachedHealthIndicatorTest extends Specification {
+
+    private HealthIndicator delegate
+
+    def setup() {
+        delegate = Mock()
+    }
+
+    def "check dependency once while result is not expired"() {
+        given:
+        def indicator = new CachedHealthIndicator(delegate, Duration.ofMinutes(1))
+
+        when:
+        def first = indicator.health()
+        def second = indicator.health()
+
+        then:
+        1 * delegate.health() >> Health.up().withDetail("database", "MySQL").build()
+        first.getStatus() == Status.UP
+        first.getDetails().get("database") == "MySQL"
+        first.getDetails().containsKey(CachedHealthIndicator.LATENCY_DETAIL)
+        first.getDetails().containsKey(CachedHealthIndicator.CHECKED_AT_DETAIL)
+        second.is(first)
+    }
+
+    def "check dependency again if result is expired"() {
+        given:
+        def indicator = new CachedHealthIndicator(delegate, Duration.ZERO)
+
+        when:
+        indicator.health()
+        def health = indicator.health()
+
+        then:
+        2 * delegate.health() >>> [Health.up().build(), Health.down().build()]
+        health.getStatus() == Status.DOWN
+    }
+
+    def "return down if check throws exception"() {
+        given:
+        def indicator = new CachedHealthIndicator(delegate, Duration.ofMinutes(1))
+
+        when:
+        def health = indicator.health()
+
+        then:
+        1 * delegate.health() >> { throw new IllegalStateException("Connection refused") }
+        health.getStatus() == Status.DOWN
+        health.getDetails().get("error") == "java.lang.IllegalStateException: Connection refused"
+    }
+}
@@ -0,0 +1,112 @@
+package az.gdg.msauth.logging
+
+import org.slf4j.MDC
+import org.springframework.mock.web.MockHttpServletRequest
+import org.springframework.mock.web.MockHttpServletResponse
+import spock.lang.Specification
+import spock.lang.Title
+import spock.lang.Unroll
+
+import javax.servlet.FilterChain
+
+@Title("Testing for request summary filter")
+class RequestSummaryFilterTest extends Specification {
+
+    private RequestSummaryFilter requestSummaryFilter = new RequestSummaryFilter()
+
+    def "keep correlation id of caller during request and return it"() {
+        given:
+        def request = new MockHttpServletRequest("GET", "/user/1")
+        request.addHeader(RequestSummaryFilter.CORRELATION_ID_HEADER, "abc")
+        def response = new MockHttpServletResponse()
+        String correlationIdInChain = null
+        FilterChain chain = { req, res -> correlationIdInChain = MDC.get(RequestSummaryFilter.CORRELATION_ID) }
+
+        when:
+        requestSummaryFilter.doFilter(request, response, chain)
+
+        then:
+        correlationIdInChain == "abc"
+        response.getHeader(RequestSummaryFilter.CORRELATION_ID_HEADER) == "abc"
+        MDC.get(RequestSummaryFilter.CORRELATION_ID) == null
+    }
+
+    def "generate correlation id if caller doesn't send it"() {
+        given:
+        def response = new MockHttpServletResponse()
+
+        when:
+        requestSummaryFilter.doFilter(new MockHttpServletRequest("GET", "/user/1"), response, {
+            req, res -> RequestSummary.setUserId("1")
+        } as FilterChain)
+
+        then:
+        response.getHeader(RequestSummaryFilter.CORRELATION_ID_HEADER) != null
+    }
+
+    @Unroll
+    def "replace correlation id '#correlationId' of caller which isn't a plain id"() {
+        given:
+        def request = new MockHttpServletRequest("GET", "/user/1")
+        request.addHeader(RequestSummaryFilter.CORRELATION_ID_HEADER, correlationId)
+        def response = new MockHttpServletResponse()
+
+        when:
+        requestSummaryFilter.doFilter(request, response, { req, res -> } as FilterChain)
+
+        then:
+        def returned = response.getHeader(RequestSummaryFilter.CORRELATION_ID_HEADER)
+        returned != correlationId
+        UUID.fromString(returned)
+
+        where:
+        correlationId << ["", "abc\ninjected=1", "abc def", "a" * 65]
+    }
+
+    def "keep correlation id of 64 characters"() {
+        given:
+        def request = new MockHttpServletRequest("GET", "/user/1")
+        request.addHeader(RequestSummaryFilter.CORRELATION_ID_HEADER, "a" * 64)
+        def response = new MockHttpServletResponse()
+
+        when:
+        requestSummaryFilter.doFilter(request, response, { req, res -> } as FilterChain)
+
+        then:
+        response.getHeader(RequestSummaryFilter.CORRELATION_ID_HEADER) == "a" * 64
+    }
+
+    def "sum up time of a phase which is recorded more than once"() {
+        given:
+        def builder = new StringBuilder()
+        def summary = RequestSummary.start()
+
+        when:
+        RequestSummary.recordPhase(RequestSummary.DB, System.nanoTime() - 2_000_000)
+        RequestSummary.recordPhase(RequestSummary.SERVICE, System.nanoTime() - 5_000_000)
+        RequestSummary.recordPhase(RequestSummary.DB, System.nanoTime() - 3_000_000)
+        summary.appendPhases(builder)
+
+        then:
+        def phases = builder.toString().trim().split(" ").collectEntries {
+            def (name, millis) = it.split("Ms=")
+            [(name): new BigDecimal(millis)]
+        }
+        phases.keySet() as List == [RequestSummary.DB, RequestSummary.SERVICE]
+        phases[RequestSummary.DB] >= 5
+
+        cleanup:
+        RequestSummary.finish()
+    }
+
+    def "format phase timings in milliseconds"() {
+        given:
+        def builder = new StringBuilder()
+
+        when:
+        RequestSummary.appendMillis(builder, 12_045_000)
+
+        then:
+        builder.toString() == "12.045"
+    }
+}
@@ -0,0 +1,116 @@
+package az.gdg.msauth.mail
+
+import az.gdg.msauth.dao.MailOutboxRepository
+import az.gdg.msauth.model.entity.MailOutboxEntity
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.transaction.PlatformTransactionManager
+import spock.lang.Specification
+import spock.lang.Title
+
+import java.time.Duration
+import java.time.LocalDateTime
+import java.util.concurrent.CompletableFuture
+
+@Title("Testing for mail outbox relay")
+class MailOutboxRelayTest extends Specification {
+
+    private MailOutboxRepository mailOutboxRepository
+    private MailPublisher mailPublisher
+    private PlatformTransactionManager transactionManager
+    private MeterRegistry meterRegistry
+    private MailOutboxRelay mailOutboxRelay
+
+    def setup() {
+        mailOutboxRepository = Mock()
+        mailPublisher = Mock()
+        transactionManager = Mock()
+        meterRegistry = new SimpleMeterRegistry()
+        mailOutboxRelay = new MailOutboxRelay(mailOutboxRepository, mailPublisher, transactionManager, meterRegistry,
+                50, Duration.ofMinutes(1), Duration.ofDays(7), Duration.ofSeconds(30))
+        mailOutboxRelay.start()
+    }
+
+    def "claim pending mails, publish them outside of claim transaction and mark them sent"() {
+        given:
+        def first = new MailOutboxEntity(1, "a@mail.ru,b@mail.ru", "subject", "body", null, null, null)
+        def second = new MailOutboxEntity(2, "c@mail.ru", "subject", "body", null, null, null)
+
+        when:
+        def sent = mailOutboxRelay.relay()
+
+        then:
+        1 * mailOutboxRepository.findClaimable(_, _) >> [first, second]
+        1 * mailOutboxRepository.claim([1L, 2L], { it.isAfter(LocalDateTime.now()) })
+        1 * transactionManager.commit(_)
+
+        then:
+        1 * mailPublisher.send("1", { it.to == ["a@mail.ru", "b@mail.ru"] }) >> CompletableFuture.completedFuture(null)
+        1 * mailPublisher.send("2", { it.to == ["c@mail.ru"] }) >> CompletableFuture.completedFuture(null)
+
+        then:
+        1 * mailOutboxRepository.markSent([1L, 2L], _)
+        0 * mailOutboxRepository.release(_)
+        1 * transactionManager.commit(_)
+        1 * mailOutboxRepository.countPending() >> 0
+        sent == 2
+    }
+
+    def "mark only confirmed mails as sent and release the others"() {
+        given:
+        def first = new MailOutboxEntity(1, "a@mail.ru", "subject", "body", null, null, null)
+        def second = new MailOutboxEntity(2, "b@mail.ru", "subject", "body", null, null, null)
+        def third = new MailOutboxEntity(3, "c@mail.ru", "subject", "body", null, null, null)
+        def nacked = new CompletableFuture<Void>()
+        nacked.completeExceptionally(new IllegalStateException("Broker is not available"))
+
+        when:
+        def sent = mailOutboxRelay.relay()
+
+        then:
+        1 * mailOutboxRepository.findClaimable(_, _) >> [first, second, third]
+        3 * mailPublisher.send(_, _) >>> [CompletableFuture.completedFuture(null), nacked,
+                                          CompletableFuture.completedFuture(null)]
+        1 * mailOutboxRepository.markSent([1L, 3L], _)
+        1 * mailOutboxRepository.release([2L])
+        1 * mailOutboxRepository.countPending() >> 1
+        sent == 2
+        mailOutboxRelay.getPendingCount() == 1
+        meterRegistry.get("mail.outbox.pending").gauge().value() == 1
+    }
+
+    def "don't publish anything if there is no pending mail"() {
+        when:
+        def sent = mailOutboxRelay.relay()
+
+        then:
+        1 * mailOutboxRepository.findClaimable(_, _) >> []
+        0 * mailOutboxRepository.claim(_, _)
+        0 * mailPublisher.send(_, _)
+        0 * mailOutboxRepository.markSent(_, _)
+        sent == 0
+    }
+
+    def "relay pending mails on shutdown until none is sent"() {
+        given:
+        def first = new MailOutboxEntity(1, "a@mail.ru", "subject", "body", null, null, null)
+        def second = new MailOutboxEntity(2, "b@mail.ru", "subject", "body", null, null, null)
+
+        when:
+        mailOutboxRelay.stop()
+
+        then:
+        3 * mailOutboxRepository.findClaimable(_, _) >>> [[first], [second], []]
+        2 * mailPublisher.send(_, _) >> CompletableFuture.completedFuture(null)
+        1 * mailOutboxRepository.markSent([1L], _)
+        1 * mailOutboxRepository.markSent([2L], _)
+        !mailOutboxRelay.isRunning()
+
+        when:
+        def sent = mailOutboxRelay.relay()
+
+        then:
+        0 * mailOutboxRepository.findClaimable(_, _)
+        sent == 0
+    }
+}
@@ -0,0 +1,91 @@
+package az.gdg.msauth.mail
+
+import az.gdg.msauth.exception.ExceedLimitException
+import az.gdg.msauth.model.dto.MailDTO
+import com.fasterxml.jackson.databind.ObjectMapper
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.cloud.stream.messaging.Source
+import org.springframework.messaging.Message
+import org.springframework.messaging.MessageChannel
+import org.springframework.messaging.MessagingException
+import org.springframework.messaging.support.ErrorMessage
+import spock.lang.Specification
+import spock.lang.Title
+
+import java.time.Duration
+import java.util.concurrent.ExecutionException
+
+@Title("Testing for mail publisher")
+class MailPublisherTest extends Specification {
+
+    private Source source
+    private MessageChannel output
+    private MeterRegistry meterRegistry
+    private MailPublisher mailPublisher
+
+    def setup() {
+        source = Mock()
+        output = Mock()
+        source.output() >> output
+        meterRegistry = new SimpleMeterRegistry()
+        mailPublisher = new MailPublisher(source, new ObjectMapper(), meterRegistry, "mail", 1, true,
+                Duration.ZERO, Duration.ofSeconds(10))
+    }
+
+    def "complete mail when broker confirms it"() {
+        given:
+        Message<byte[]> sent = null
+        def mail = MailDTO.builder().to(["a@mail.ru"]).subject("subject").body("body").build()
+
+        when:
+        def confirm = mailPublisher.send("1", mail)
+
+        then:
+        1 * output.send(_) >> { args -> sent = args[0]; true }
+        !confirm.isDone()
+        mailPublisher.getInFlightCount() == 1
+        new ObjectMapper().readValue(sent.getPayload(), MailDTO) == mail
+        sent.getHeaders().get(MailPublisher.PUBLISH_ID_HEADER) == "1"
+
+        when:
+        mailPublisher.onConfirm(sent)
+
+        then:
+        confirm.isDone()
+        !confirm.isCompletedExceptionally()
+        mailPublisher.getInFlightCount() == 0
+        meterRegistry.get("mail.publish").tag("destination", "mail").timer().count() == 1
+    }
+
+    def "reject mail if too many mails are waiting for confirm"() {
+        given:
+        def mail = MailDTO.builder().to(["a@mail.ru"]).subject("subject").body("body").build()
+
+        when:
+        mailPublisher.send("1", mail)
+        mailPublisher.send("2", mail).get()
+
+        then:
+        1 * output.send(_) >> true
+        def e = thrown(ExecutionException)
+        e.getCause() instanceof ExceedLimitException
+        meterRegistry.get("mail.publish.failures").tag("reason", "rejected").counter().count() == 1
+    }
+
+    def "fail mail and free its slot when broker nacks it"() {
+        given:
+        Message<byte[]> sent = null
+        def mail = MailDTO.builder().to(["a@mail.ru"]).subject("subject").body("body").build()
+
+        when:
+        def confirm = mailPublisher.send("1", mail)
+        mailPublisher.onPublishError(new ErrorMessage(new MessagingException(sent, "nack")))
+
+        then:
+        1 * output.send(_) >> { args -> sent = args[0]; true }
+        confirm.isCompletedExceptionally()
+        mailPublisher.getInFlightCount() == 0
+        meterRegistry.get("mail.publish.failures").tag("reason", "nack").counter().count() == 1
+    }
+}
@@ -0,0 +1,38 @@
+package az.gdg.msauth.mail
+
+import spock.lang.Specification
+import spock.lang.Title
+
+@Title("Testing for mail template")
+class MailTemplateTest extends Specification {
+
+    def "render variables and constants"() {
+        given:
+        def template = MailTemplate.compile("<a href={{url}}{{ token }}>{{url}}{{token}}</a>",
+                ["url": "http://virustat.org/reset.html?token="])
+
+        when:
+        def body = template.render(["token": "abc"])
+
+        then:
+        body == "<a href=http://virustat.org/reset.html?token=abc>http://virustat.org/reset.html?token=abc</a>"
+    }
+
+    def "render missing variable as null like string concatenation"() {
+        expect:
+        MailTemplate.compile("token={{token}}").render([:]) == "token=null"
+    }
+
+    def "render template without variables"() {
+        expect:
+        MailTemplate.compile("<h2>Done</h2>").render([:]) == "<h2>Done</h2>"
+    }
+
+    def "reject template with unclosed variable"() {
+        when:
+        MailTemplate.compile("<a href={{url>")
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+}
@@ -0,0 +1,51 @@
+package az.gdg.msauth.metrics
+
+import az.gdg.msauth.dao.UserRepository
+import az.gdg.msauth.model.entity.UserEntity
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory
+import spock.lang.Specification
+import spock.lang.Title
+
+@Title("Testing for repository metrics aspect")
+class RepositoryMetricsAspectTest extends Specification {
+
+    private SimpleMeterRegistry registry
+    private UserRepository userRepository
+    private UserRepository timedUserRepository
+
+    def setup() {
+        registry = new SimpleMeterRegistry()
+        userRepository = Mock()
+        def proxyFactory = new AspectJProxyFactory(userRepository)
+        proxyFactory.addInterface(UserRepository)
+        proxyFactory.addAspect(new RepositoryMetricsAspect(registry))
+        timedUserRepository = proxyFactory.getProxy()
+    }
+
+    def "time repository method per method name"() {
+        given:
+        def user = new UserEntity()
+
+        when:
+        def result = timedUserRepository.findByMail("example@mail.ru")
+        timedUserRepository.findByMail("example@mail.ru")
+
+        then:
+        2 * userRepository.findByMail("example@mail.ru") >> user
+        result.is(user)
+        registry.get("db.repository")
+                .tags("repository", "UserRepository", "method", "findByMail")
+                .timer().count() == 2
+    }
+
+    def "time repository method if it throws"() {
+        when:
+        timedUserRepository.findByMail("example@mail.ru")
+
+        then:
+        1 * userRepository.findByMail("example@mail.ru") >> { throw new IllegalStateException("Connection is closed") }
+        thrown(IllegalStateException)
+        registry.get("db.repository").tags("method", "findByMail").timer().count() == 1
+    }
+}
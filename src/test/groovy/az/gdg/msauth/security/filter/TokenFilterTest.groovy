@@ -0,0 +1,124 @@
+package az.gdg.msauth.security.filter
+
+import az.gdg.msauth.dao.TokenRevocationRepository
+import az.gdg.msauth.model.entity.TokenRevocationEntity
+import az.gdg.msauth.security.controller.EntryPointUnauthorizedHandler
+import az.gdg.msauth.security.service.impl.TokenRevocationServiceImpl
+import az.gdg.msauth.security.service.impl.UserDetailServiceImpl
+import az.gdg.msauth.security.util.TokenClaimsCache
+import az.gdg.msauth.security.util.TokenUtil
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.mock.web.MockFilterChain
+import org.springframework.mock.web.MockHttpServletRequest
+import org.springframework.mock.web.MockHttpServletResponse
+import org.springframework.security.core.context.SecurityContextHolder
+import spock.lang.Specification
+import spock.lang.Title
+
+import java.time.Duration
+
+@Title("Testing for token filter")
+class TokenFilterTest extends Specification {
+
+    private static final String SECRET = "YXNka2olXl4md2ZvQWlldzg5MzQyMzQ4dWRmZGkhQCMkJV4mKigjKEAofmB8dm9tYm9tQUAjJF4pKCop" +
+            "SkZpaWZvZ3JlZ2lXWVFSSU4mJiohJDAxODQ3OTI1MDEzMUlBSUFCVlNIU0hTRzU5Mjk1MHRXSUpPR1NT" +
+            "ISMxNDQyNChAKCUoKUAqJSgpKg=="
+    private static final String MAIL = "example@mail.ru"
+
+    private TokenUtil tokenUtil
+    private TokenRevocationRepository tokenRevocationRepository
+    private TokenFilter tokenFilter
+
+    def setup() {
+        tokenUtil = new TokenUtil(new TokenClaimsCache(100))
+        tokenUtil.@secret = SECRET
+        tokenUtil.@accessExpiration = 9000L
+        tokenUtil.@refreshExpiration = 12000L
+        tokenUtil.@verifyTokenExpiration = 5000L
+        tokenUtil.init()
+
+        tokenRevocationRepository = Mock()
+        tokenFilter = new TokenFilter(tokenUtil, Mock(UserDetailServiceImpl),
+                new TokenRevocationServiceImpl(tokenRevocationRepository, Duration.ofMinutes(1), 100),
+                new EntryPointUnauthorizedHandler(), true, new SimpleMeterRegistry())
+    }
+
+    def cleanup() {
+        SecurityContextHolder.clearContext()
+    }
+
+    def "authenticate request with valid access token"() {
+        given:
+        def chain = new MockFilterChain()
+        def token = tokenUtil.generateTokens(MAIL, "1", "ROLE_USER", "CONFIRMED").getAccess()
+
+        when:
+        def response = filter(token, chain)
+
+        then:
+        1 * tokenRevocationRepository.findById(MAIL) >> Optional.empty()
+        response.getStatus() == 200
+        chain.getRequest() != null
+        SecurityContextHolder.getContext().getAuthentication().getPrincipal().getUsername() == MAIL
+    }
+
+    def "return 401 for token issued before tokens of user were revoked"() {
+        given:
+        def chain = new MockFilterChain()
+        def token = tokenUtil.generateTokens(MAIL, "1", "ROLE_USER", "CONFIRMED").getAccess()
+        def revokedAt = tokenUtil.getIssuedAtDateFromToken(token).getTime().intdiv(1000) + 1
+
+        when:
+        def response = filter(token, chain)
+
+        then:
+        1 * tokenRevocationRepository.findById(MAIL) >> Optional.of(new TokenRevocationEntity(MAIL, revokedAt))
+        response.getStatus() == 401
+        chain.getRequest() == null
+        SecurityContextHolder.getContext().getAuthentication() == null
+    }
+
+    def "accept token issued in the same second as revocation"() {
+        given:
+        def token = tokenUtil.generateTokens(MAIL, "1", "ROLE_USER", "CONFIRMED").getAccess()
+        def revokedAt = tokenUtil.getIssuedAtDateFromToken(token).getTime().intdiv(1000)
+
+        when:
+        def response = filter(token, new MockFilterChain())
+
+        then:
+        1 * tokenRevocationRepository.findById(MAIL) >> Optional.of(new TokenRevocationEntity(MAIL, revokedAt))
+        response.getStatus() == 200
+        SecurityContextHolder.getContext().getAuthentication() != null
+    }
+
+    def "return 401 for token which can't be verified"() {
+        when:
+        def response = filter("asdfghjkl", new MockFilterChain())
+
+        then:
+        response.getStatus() == 401
+    }
+
+    def "pass mail token to endpoint without authenticating it"() {
+        given:
+        def chain = new MockFilterChain()
+
+        when:
+        def response = filter(tokenUtil.generateTokenWithEmail(MAIL), chain)
+
+        then:
+        0 * tokenRevocationRepository.findById(_)
+        response.getStatus() == 200
+        chain.getRequest() != null
+        SecurityContextHolder.getContext().getAuthentication() == null
+    }
+
+    private MockHttpServletResponse filter(String token, MockFilterChain chain) {
+        def request = new MockHttpServletRequest("GET", "/api/auth/refresh")
+        request.addHeader("X-Auth-Token", token)
+        def response = new MockHttpServletResponse()
+        tokenFilter.doFilter(request, response, chain)
+        response
+    }
+}
@@ -2,8 +2,9 @@ package az.gdg.msauth.security.service.impl
 
 import az.gdg.msauth.dao.UserRepository
 import az.gdg.msauth.exception.NotFoundException
+import az.gdg.msauth.exception.ServiceUnavailableException
 import az.gdg.msauth.exception.WrongDataException
-import az.gdg.msauth.model.entity.UserEntity
+import az.gdg.msauth.security.bean.CustomUserDetail
 import az.gdg.msauth.security.exception.AuthenticationException
 import az.gdg.msauth.security.model.Role
 import az.gdg.msauth.security.model.Status
@@ -13,6 +14,9 @@ import az.gdg.msauth.security.model.dto.UserInfo
 import az.gdg.msauth.security.service.impl.AuthenticationServiceImpl
 import az.gdg.msauth.security.util.TokenUtil
 import org.springframework.security.authentication.AuthenticationManager
+import org.springframework.security.authentication.InternalAuthenticationServiceException
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken
+import org.springframework.security.core.Authentication
 import spock.lang.Specification
 import spock.lang.Title
 
@@ -68,18 +72,22 @@ class AuthenticationServiceImplTest extends Specification {
         def request = new JwtAuthenticationRequest()
         request.setMail("example.com")
         request.setPassword("1234")
-        def entity = new UserEntity()
-        entity.setId(1)
-        entity.setStatus(Status.CONFIRMED)
-        entity.setRole(Role.ROLE_USER)
-        def token = "asdfghjklyutryrwrtututu"
+        def principal = CustomUserDetail.builder()
+                .id(1)
+                .username(request.getMail())
+                .authorities([Role.ROLE_USER])
+                .status(Status.CONFIRMED)
+                .build()
+        def response = new JwtAuthenticationResponse("access", "refresh")
 
         when:
-        authenticationServiceImp.createAuthenticationToken(request)
+        def result = authenticationServiceImp.createAuthenticationToken(request)
 
         then:
-        1 * userRepository.findByMail(request.getMail()) >> entity
-        new JwtAuthenticationResponse(token) >> token
+        1 * authenticationManager.authenticate(_) >> authenticated(principal)
+        0 * userRepository.findByMail(_)
+        1 * tokenUtil.generateTokens("example.com", "1", "ROLE_USER", "CONFIRMED") >> response
+        result.is(response)
         notThrown(AuthenticationException)
 
     }
@@ -89,14 +97,18 @@ class AuthenticationServiceImplTest extends Specification {
         def request = new JwtAuthenticationRequest()
         request.setMail("example.com")
         request.setPassword("1234")
-        def entity = new UserEntity()
-        entity.setStatus(Status.REGISTERED)
+        def principal = CustomUserDetail.builder()
+                .username(request.getMail())
+                .authorities([Role.ROLE_USER])
+                .status(Status.REGISTERED)
+                .build()
 
         when:
         authenticationServiceImp.createAuthenticationToken(request)
 
         then:
-        1 * userRepository.findByMail(request.getMail()) >> entity
+        1 * authenticationManager.authenticate(_) >> authenticated(principal)
+        0 * tokenUtil.generateTokens(_, _, _, _)
         thrown(AuthenticationException)
 
     }
@@ -106,14 +118,18 @@ class AuthenticationServiceImplTest extends Specification {
         def request = new JwtAuthenticationRequest()
         request.setMail("example.com")
         request.setPassword("1234")
-        def entity = new UserEntity()
-        entity.setStatus(Status.BLOCKED)
+        def principal = CustomUserDetail.builder()
+                .username(request.getMail())
+                .authorities([Role.ROLE_USER])
+                .status(Status.BLOCKED)
+                .build()
 
         when:
         authenticationServiceImp.createAuthenticationToken(request)
 
         then:
-        1 * userRepository.findByMail(request.getMail()) >> entity
+        1 * authenticationManager.authenticate(_) >> authenticated(principal)
+        0 * tokenUtil.generateTokens(_, _, _, _)
         thrown(AuthenticationException)
 
     }
@@ -123,13 +139,12 @@ class AuthenticationServiceImplTest extends Specification {
         def request = new JwtAuthenticationRequest()
         request.setMail("example.com")
         request.setPassword("1234")
-        def entity = null
 
         when:
         authenticationServiceImp.createAuthenticationToken(request)
 
         then:
-        1 * userRepository.findByMail(request.getMail()) >> entity
+        1 * authenticationManager.authenticate(_) >> null
         thrown(NotFoundException)
 
     }
@@ -160,5 +175,20 @@ class AuthenticationServiceImplTest extends Specification {
 
     }
 
+    def "keep ServiceUnavailableException if password hasher rejects check of unknown user"() {
+        when:
+        authenticationServiceImp.authenticate("example@mail.ru", "12345")
+
+        then:
+        1 * authenticationManager.authenticate(_) >> {
+            throw new InternalAuthenticationServiceException("Hasher is busy",
+                    new ServiceUnavailableException("Too many requests, please try again later"))
+        }
+        thrown(ServiceUnavailableException)
 
+    }
+
+    private static Authentication authenticated(CustomUserDetail principal) {
+        new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities())
+    }
 }
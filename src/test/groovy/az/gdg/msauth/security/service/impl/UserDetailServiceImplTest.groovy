@@ -0,0 +1,62 @@
+package az.gdg.msauth.security.service.impl
+
+import az.gdg.msauth.dao.UserRepository
+import az.gdg.msauth.exception.WrongDataException
+import az.gdg.msauth.model.entity.UserEntity
+import az.gdg.msauth.security.model.Role
+import spock.lang.Specification
+import spock.lang.Title
+
+@Title("Testing for user detail service implementation")
+class UserDetailServiceImplTest extends Specification {
+
+    private UserRepository userRepository
+    private UserDetailServiceImpl userDetailService
+
+    def setup() {
+        userRepository = Mock()
+        userDetailService = new UserDetailServiceImpl(userRepository)
+    }
+
+    def "load user by mail"() {
+        given:
+        def userEntity = new UserEntity()
+        userEntity.setMail("example@mail.ru")
+        userEntity.setPassword("hash")
+        userEntity.setRole(Role.ROLE_USER)
+
+        when:
+        def user = userDetailService.loadUserByUsername("example@mail.ru")
+
+        then:
+        1 * userRepository.findByMail("example@mail.ru") >> userEntity
+        user.getUsername() == "example@mail.ru"
+        user.getPassword() == "hash"
+    }
+
+    def "throw WrongDataException if user doesn't exist"() {
+        when:
+        userDetailService.loadUserByUsername("example@mail.ru")
+
+        then:
+        1 * userRepository.findByMail("example@mail.ru") >> null
+        thrown(WrongDataException)
+    }
+
+    def "store upgraded password hash"() {
+        given:
+        def userEntity = new UserEntity()
+        userEntity.setMail("example@mail.ru")
+        userEntity.setPassword("old-hash")
+        userEntity.setRole(Role.ROLE_USER)
+        userRepository.findByMail("example@mail.ru") >> userEntity
+        def user = userDetailService.loadUserByUsername("example@mail.ru")
+
+        when:
+        def upgraded = userDetailService.updatePassword(user, "{bcrypt}new-hash")
+
+        then:
+        1 * userRepository.updatePassword("example@mail.ru", "{bcrypt}new-hash") >> 1
+        upgraded.getPassword() == "{bcrypt}new-hash"
+    }
+}
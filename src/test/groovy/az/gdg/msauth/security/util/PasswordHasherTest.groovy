@@ -0,0 +1,111 @@
+package az.gdg.msauth.security.util
+
+import az.gdg.msauth.exception.ServiceUnavailableException
+import az.gdg.msauth.security.model.HashRejectionPolicy
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.http.HttpStatus
+import org.springframework.security.crypto.password.PasswordEncoder
+import org.springframework.web.bind.annotation.ResponseStatus
+import spock.lang.Specification
+import spock.lang.Title
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+@Title("Testing for password hasher")
+class PasswordHasherTest extends Specification {
+
+    private ExecutorService callers = Executors.newCachedThreadPool()
+    private CountDownLatch release = new CountDownLatch(1)
+    private CountDownLatch started = new CountDownLatch(1)
+    private PasswordEncoder slowEncoder = new PasswordEncoder() {
+        @Override
+        String encode(CharSequence rawPassword) {
+            started.countDown()
+            release.await(5, TimeUnit.SECONDS)
+            return "hash-" + rawPassword
+        }
+
+        @Override
+        boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encodedPassword == "hash-" + rawPassword
+        }
+    }
+
+    def "hash password on hasher thread"() {
+        given:
+        def passwordHasher = new PasswordHasher(slowEncoder, 1, 1, HashRejectionPolicy.ABORT, new SimpleMeterRegistry())
+        release.countDown()
+
+        expect:
+        passwordHasher.encode("pw") == "hash-pw"
+        passwordHasher.matches("pw", "hash-pw")
+
+        cleanup:
+        passwordHasher.shutdown()
+    }
+
+    def "reject hashing with ServiceUnavailableException if hasher queue is full and policy is abort"() {
+        given:
+        def meterRegistry = new SimpleMeterRegistry()
+        def passwordHasher = new PasswordHasher(slowEncoder, 1, 1, HashRejectionPolicy.ABORT, meterRegistry)
+
+        when:
+        def first = CompletableFuture.supplyAsync({ passwordHasher.encode("first") }, callers)
+        started.await(5, TimeUnit.SECONDS)
+        def second = CompletableFuture.supplyAsync({ passwordHasher.encode("second") }, callers)
+        waitForQueueDepth(passwordHasher, 1)
+        passwordHasher.encode("third")
+
+        then:
+        def e = thrown(ServiceUnavailableException)
+        ServiceUnavailableException.getAnnotation(ResponseStatus).value() == HttpStatus.SERVICE_UNAVAILABLE
+        meterRegistry.get("password.hash.rejected").counter().count() == 1
+
+        when:
+        release.countDown()
+
+        then:
+        first.get(5, TimeUnit.SECONDS) == "hash-first"
+        second.get(5, TimeUnit.SECONDS) == "hash-second"
+
+        cleanup:
+        release.countDown()
+        passwordHasher.shutdown()
+    }
+
+    def "hash on calling thread if hasher queue is full and policy is caller runs"() {
+        given:
+        def meterRegistry = new SimpleMeterRegistry()
+        def passwordHasher = new PasswordHasher(slowEncoder, 1, 1, HashRejectionPolicy.CALLER_RUNS, meterRegistry)
+
+        when:
+        CompletableFuture.supplyAsync({ passwordHasher.encode("first") }, callers)
+        started.await(5, TimeUnit.SECONDS)
+        CompletableFuture.supplyAsync({ passwordHasher.encode("second") }, callers)
+        waitForQueueDepth(passwordHasher, 1)
+        CompletableFuture.runAsync({ Thread.sleep(100); release.countDown() }, callers)
+        def third = passwordHasher.encode("third")
+
+        then:
+        third == "hash-third"
+        meterRegistry.get("password.hash.rejected").counter().count() == 1
+
+        cleanup:
+        passwordHasher.shutdown()
+    }
+
+    def cleanup() {
+        callers.shutdownNow()
+    }
+
+    private static void waitForQueueDepth(PasswordHasher passwordHasher, int depth) {
+        long deadline = System.currentTimeMillis() + 5000
+        while (passwordHasher.getQueueDepth() < depth && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10)
+        }
+    }
+}
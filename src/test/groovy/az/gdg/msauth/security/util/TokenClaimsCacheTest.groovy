@@ -0,0 +1,84 @@
+package az.gdg.msauth.security.util
+
+import io.jsonwebtoken.Claims
+import io.jsonwebtoken.Jwts
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+import spock.lang.Title
+
+import java.util.function.Function
+
+@Title("Testing for token claims cache")
+class TokenClaimsCacheTest extends Specification {
+
+    private TokenClaimsCache tokenClaimsCache
+    private Function<String, Claims> parser
+
+    def setup() {
+        tokenClaimsCache = new TokenClaimsCache(100)
+        parser = Mock()
+    }
+
+    def "parse token only once while it is not expired"() {
+        given:
+        def token = "asdfghjkl"
+        def claims = Jwts.claims()
+        claims.setSubject("example@mail.ru")
+        claims.setExpiration(new Date(System.currentTimeMillis() + 60000))
+
+        when:
+        def first = tokenClaimsCache.get(token, parser)
+        def second = tokenClaimsCache.get(token, parser)
+
+        then:
+        1 * parser.apply(token) >> claims
+        first.getSubject() == "example@mail.ru"
+        second.is(first)
+        tokenClaimsCache.getMissCount() == 1
+        tokenClaimsCache.getHitCount() == 1
+    }
+
+    def "parse token again if cached claims are expired"() {
+        given:
+        def token = "asdfghjkl"
+        def claims = Jwts.claims()
+        claims.setExpiration(new Date(System.currentTimeMillis() - 1000))
+
+        when:
+        tokenClaimsCache.get(token, parser)
+        tokenClaimsCache.get(token, parser)
+
+        then:
+        2 * parser.apply(token) >> claims
+        tokenClaimsCache.getHitCount() == 0
+    }
+
+    def "don't cache claims if token can't be parsed"() {
+        given:
+        def token = "asdfghjkl"
+
+        when:
+        tokenClaimsCache.get(token, parser)
+
+        then:
+        1 * parser.apply(token) >> { throw new IllegalArgumentException("Token is not valid") }
+        thrown(IllegalArgumentException)
+    }
+
+    def "expose hits and misses as cache metrics"() {
+        given:
+        def registry = new SimpleMeterRegistry()
+        def claims = Jwts.claims()
+        claims.setExpiration(new Date(System.currentTimeMillis() + 60000))
+        parser.apply(_) >> claims
+
+        when:
+        tokenClaimsCache.bindTo(registry)
+        tokenClaimsCache.get("asdfghjkl", parser)
+        tokenClaimsCache.get("asdfghjkl", parser)
+
+        then:
+        registry.get("cache.gets").tags("cache", "tokenClaims", "result", "hit").functionCounter().count() == 1
+        registry.get("cache.gets").tags("cache", "tokenClaims", "result", "miss").functionCounter().count() == 1
+    }
+}
@@ -0,0 +1,80 @@
+package az.gdg.msauth.service.impl
+
+import az.gdg.msauth.dao.MailOutboxRepository
+import az.gdg.msauth.exception.ExceedLimitException
+import az.gdg.msauth.mail.MailOutboxRelay
+import az.gdg.msauth.model.MailQueuePolicy
+import az.gdg.msauth.model.dto.MailDTO
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+import spock.lang.Title
+
+@Title("Testing for mail service")
+class MailServiceImplTest extends Specification {
+
+    private MailOutboxRepository mailOutboxRepository
+    private MailOutboxRelay mailOutboxRelay
+    private SimpleMeterRegistry meterRegistry
+    private MailDTO mail
+
+    def setup() {
+        mailOutboxRepository = Mock()
+        mailOutboxRelay = Mock()
+        meterRegistry = new SimpleMeterRegistry()
+        mail = MailDTO.builder().to(["a@mail.ru", "b@mail.ru"]).subject("subject").body("body").build()
+    }
+
+    def "write mail to outbox if outbox isn't full"() {
+        given:
+        def mailService = new MailServiceImpl(mailOutboxRepository, mailOutboxRelay, meterRegistry,
+                MailQueuePolicy.FAIL, 10)
+
+        when:
+        mailService.sendToQueue(mail)
+
+        then:
+        1 * mailOutboxRelay.getPendingCount() >> 9
+        1 * mailOutboxRepository.save({ it.recipients == "a@mail.ru,b@mail.ru" && it.subject == "subject" })
+    }
+
+    def "write mail to outbox even if outbox is full when policy is UNBOUNDED"() {
+        given:
+        def mailService = new MailServiceImpl(mailOutboxRepository, mailOutboxRelay, meterRegistry,
+                MailQueuePolicy.UNBOUNDED, 10)
+
+        when:
+        mailService.sendToQueue(mail)
+
+        then:
+        _ * mailOutboxRelay.getPendingCount() >> 10
+        1 * mailOutboxRepository.save(_)
+    }
+
+    def "drop and count mails if outbox is full when policy is DROP"() {
+        given:
+        def mailService = new MailServiceImpl(mailOutboxRepository, mailOutboxRelay, meterRegistry,
+                MailQueuePolicy.DROP, 10)
+
+        when:
+        mailService.sendAll([mail, mail])
+
+        then:
+        1 * mailOutboxRelay.getPendingCount() >> 10
+        0 * mailOutboxRepository.saveAll(_)
+        meterRegistry.get("mail.outbox.dropped").counter().count() == 2
+    }
+
+    def "throw ExceedLimitException if outbox is full when policy is FAIL"() {
+        given:
+        def mailService = new MailServiceImpl(mailOutboxRepository, mailOutboxRelay, meterRegistry,
+                MailQueuePolicy.FAIL, 10)
+
+        when:
+        mailService.sendToQueue(mail)
+
+        then:
+        1 * mailOutboxRelay.getPendingCount() >> 10
+        0 * mailOutboxRepository.save(_)
+        thrown(ExceedLimitException)
+    }
+}
@@ -1,31 +1,53 @@
 package az.gdg.msauth.service.impl
 
+import az.gdg.msauth.cache.PopularityCounter
+import az.gdg.msauth.cache.PopularityLeaderboard
+import az.gdg.msauth.cache.UserDetailCache
 import az.gdg.msauth.client.MsStorageClient
 import az.gdg.msauth.dao.UserRepository
 import az.gdg.msauth.exception.*
+import az.gdg.msauth.mail.MailTemplates
 import az.gdg.msauth.mapper.UserMapper
 import az.gdg.msauth.model.dto.MailDTO
 import az.gdg.msauth.model.dto.UserDTO
 import az.gdg.msauth.model.dto.UserDetail
+import az.gdg.msauth.model.dto.UserPopularity
 import az.gdg.msauth.model.entity.UserEntity
+import az.gdg.msauth.security.model.HashRejectionPolicy
 import az.gdg.msauth.security.model.dto.UserInfo
+import az.gdg.msauth.security.service.TokenRevocationService
+import az.gdg.msauth.security.util.PasswordHasher
 import az.gdg.msauth.security.util.TokenUtil
 import az.gdg.msauth.service.impl.MailServiceImpl
 import az.gdg.msauth.service.impl.UserServiceImpl
+import com.github.benmanes.caffeine.cache.Caffeine
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.core.io.DefaultResourceLoader
+import org.springframework.dao.DataIntegrityViolationException
 import org.springframework.mock.web.MockMultipartFile
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder
+import org.springframework.transaction.PlatformTransactionManager
 import org.springframework.web.multipart.MultipartFile
 import spock.lang.Specification
 import spock.lang.Title
 
+import java.time.LocalDate
+
 @Title("Testing for user service implementation")
 class UserServiceImplTest extends Specification {
 
     private UserRepository userRepository
     private UserServiceImpl userService
     private MailServiceImpl mailServiceImpl
+    private MailTemplates mailTemplates
     private TokenUtil tokenUtil
     private MsStorageClient msStorageClient
+    private UserDetailCache userDetailCache
+    private PopularityLeaderboard popularityLeaderboard
+    private PopularityCounter popularityCounter
+    private PasswordHasher passwordHasher
+    private TokenRevocationService tokenRevocationService
+    private PlatformTransactionManager transactionManager
 
 
     def setup() {
@@ -33,10 +55,26 @@ class UserServiceImplTest extends Specification {
         mailServiceImpl = Mock()
         tokenUtil = Mock()
         msStorageClient = Mock()
-        userService = new UserServiceImpl(userRepository, msStorageClient, mailServiceImpl, tokenUtil)
+        tokenRevocationService = Mock()
+        transactionManager = Mock()
+        userDetailCache = new UserDetailCache(Caffeine.newBuilder().recordStats().build())
+        popularityLeaderboard = new PopularityLeaderboard(userRepository, 3)
+        popularityCounter = new PopularityCounter(userRepository, popularityLeaderboard)
+        passwordHasher = new PasswordHasher(new BCryptPasswordEncoder(), 1, 10, HashRejectionPolicy.ABORT,
+                new SimpleMeterRegistry())
+        mailTemplates = new MailTemplates(new DefaultResourceLoader(),
+                "https://gdg-ms-auth.herokuapp.com/user/verify-account?token=",
+                "http://virustat.org/reset.html?token=")
+        userService = new UserServiceImpl(userRepository, msStorageClient, mailServiceImpl, mailTemplates, tokenUtil,
+                userDetailCache, popularityLeaderboard, popularityCounter, passwordHasher, tokenRevocationService,
+                transactionManager)
     }
 
 
+    def cleanup() {
+        passwordHasher.shutdown()
+    }
+
     def "don't throw NotAllowedException if user accepts our terms and conditions"() {
 
         given:
@@ -81,6 +119,9 @@ class UserServiceImplTest extends Specification {
 
         then:
         1 * userRepository.findByMail(userDto.getMail()) >> entity
+        1 * userRepository.save({ it.getPassword() != userDto.getPassword() })
+        1 * mailServiceImpl.sendToQueue(_)
+        1 * transactionManager.commit(_)
         notThrown(WrongDataException)
     }
 
@@ -98,6 +139,26 @@ class UserServiceImplTest extends Specification {
 
         then:
         1 * userRepository.findByMail(userDto.getMail()) >> entity
+        0 * transactionManager._
+        thrown(WrongDataException)
+    }
+
+    def "should throw WrongDataException if user with the same email is saved meanwhile"() {
+
+        given:
+        def userDto = new UserDTO()
+        userDto.setAreTermsAndConditionsConfirmed(true)
+        userDto.setMail("example.com")
+        userDto.setPassword("pw")
+
+        when:
+        userService.signUp(userDto)
+
+        then:
+        1 * userRepository.findByMail(userDto.getMail()) >> null
+        1 * userRepository.save(_) >> { throw new DataIntegrityViolationException("uk_users_mail") }
+        0 * mailServiceImpl.sendToQueue(_)
+        1 * transactionManager.rollback(_)
         thrown(WrongDataException)
     }
 
@@ -115,6 +176,7 @@ class UserServiceImplTest extends Specification {
         1 * tokenUtil.getMailFromToken(token) >> userEntity.getMail()
         1 * userRepository.findByMail(userEntity.getMail()) >> userEntity
         1 * userRepository.save(userEntity)
+        1 * tokenRevocationService.revokeTokens(userEntity.getMail())
         notThrown(NotFoundException)
     }
 
@@ -183,10 +245,47 @@ class UserServiceImplTest extends Specification {
 
         then:
         1 * userRepository.findById(userEntity.getId()) >> user
-        1 * userRepository.save(userEntity)
+        0 * userRepository.save(userEntity)
+        popularityCounter.getPendingCount() == 1
         notThrown(NotFoundException)
     }
 
+    def "write popularity increments of user with one batch on flush"() {
+
+        given:
+        def userEntity = new UserEntity()
+        userEntity.setId(1)
+        userEntity.setPopularity(3)
+        userRepository.findById(userEntity.getId()) >> Optional.of(userEntity)
+
+        when:
+        userService.addPopularity(userEntity.getId())
+        userService.addPopularity(userEntity.getId())
+        popularityCounter.flush()
+
+        then:
+        1 * userRepository.addPopularities([(1L): 2L])
+        1 * userRepository.findPopularitiesByIdIn({ it as List == [1L] }) >> [new UserPopularity(1L, 5)]
+        1 * userRepository.findUserDetailsByIdIn([1L]) >> [UserMapper.INSTANCE.entityToDto(userEntity)]
+        popularityCounter.getPendingCount() == 0
+        userService.getPopularUsers()*.id == [1L]
+    }
+
+    def "read popularities of flushed users with at most 500 ids per query"() {
+
+        given:
+        (1L..501L).each { popularityCounter.increment(it) }
+
+        when:
+        popularityCounter.flush()
+
+        then:
+        1 * userRepository.addPopularities({ it.size() == 501 })
+        1 * userRepository.findPopularitiesByIdIn({ it.size() == 500 }) >> []
+        1 * userRepository.findPopularitiesByIdIn({ it.size() == 1 }) >> []
+        popularityCounter.getPendingCount() == 0
+    }
+
     def "should throw NotFoundException and don't add popularity if user doesn't exist in database"() {
 
         given:
@@ -208,19 +307,40 @@ class UserServiceImplTest extends Specification {
         def userInfo = new UserInfo()
         def entity = new UserEntity()
         entity.setRemainingQuackCount(12)
+        entity.setQuotaDay(LocalDate.now())
         userInfo.setUserId("1")
         def userEntity = Optional.of(entity)
 
         when:
-        userService.getRemainingQuackCount(token)
+        def count = userService.getRemainingQuackCount(token)
 
         then:
         1 * tokenUtil.getUserInfoFromToken(token) >> userInfo
         1 * userRepository.findById(Integer.parseInt(userInfo.getUserId())) >> userEntity
-        entity.getRemainingQuackCount() == 12
+        count == 12
         notThrown(NotFoundException)
     }
 
+    def "get daily quack count if remaining quack count belongs to previous day"() {
+
+        given:
+        def token = "dsadsfsf"
+        def userInfo = new UserInfo()
+        def entity = new UserEntity()
+        entity.setRemainingQuackCount(0)
+        entity.setQuotaDay(LocalDate.now().minusDays(1))
+        userInfo.setUserId("1")
+        def userEntity = Optional.of(entity)
+
+        when:
+        def count = userService.getRemainingQuackCount(token)
+
+        then:
+        1 * tokenUtil.getUserInfoFromToken(token) >> userInfo
+        1 * userRepository.findById(Integer.parseInt(userInfo.getUserId())) >> userEntity
+        count == 500
+    }
+
     def "should throw NotFoundException and don't get remaining quack count if user doesn't exist in database"() {
 
         given:
@@ -245,77 +365,75 @@ class UserServiceImplTest extends Specification {
         def userInfo = new UserInfo()
         def entity = new UserEntity()
         entity.setRemainingHateCount(12)
+        entity.setQuotaDay(LocalDate.now())
         userInfo.setUserId("1")
         def userEntity = Optional.of(entity)
 
         when:
-        userService.getRemainingHateCount(token)
+        def count = userService.getRemainingHateCount(token)
 
         then:
         1 * tokenUtil.getUserInfoFromToken(token) >> userInfo
         1 * userRepository.findById(Integer.parseInt(userInfo.getUserId())) >> userEntity
-        entity.getRemainingHateCount() == 12
+        count == 12
         notThrown(NotFoundException)
     }
 
-    def "should throw NotFoundException and don't get remaining hate count if user doesn't exist in database"() {
+    def "get daily hate count if remaining hate count belongs to previous day"() {
 
         given:
         def token = "dsadsfsf"
         def userInfo = new UserInfo()
+        def entity = new UserEntity()
+        entity.setRemainingHateCount(0)
+        entity.setQuotaDay(LocalDate.now().minusDays(1))
         userInfo.setUserId("1")
-        def userEntity = Optional.empty()
+        def userEntity = Optional.of(entity)
 
         when:
-        userService.getRemainingHateCount(token)
+        def count = userService.getRemainingHateCount(token)
 
         then:
         1 * tokenUtil.getUserInfoFromToken(token) >> userInfo
         1 * userRepository.findById(Integer.parseInt(userInfo.getUserId())) >> userEntity
-        thrown(NotFoundException)
+        count == 500
     }
 
-    def "refresh remaining quack and hate count if users exist in database"() {
+    def "should throw NotFoundException and don't get remaining hate count if user doesn't exist in database"() {
 
         given:
-        def userEntity = new UserEntity()
-        def listUsers = []
-        listUsers.add(userEntity)
-        when:
-        userService.refreshRemainingQuackAndHateCount()
-
-        then:
-        1 * userRepository.findAll() >> listUsers
-        1 * userRepository.save(userEntity)
-        notThrown(NotFoundException)
-    }
-
-    def "should throw NotFoundException and don't refresh remaining quack and hate count if users don't exist in database"() {
+        def token = "dsadsfsf"
+        def userInfo = new UserInfo()
+        userInfo.setUserId("1")
+        def userEntity = Optional.empty()
 
-        given:
-        def listUsers = Collections.emptyList()
         when:
-        userService.refreshRemainingQuackAndHateCount()
+        userService.getRemainingHateCount(token)
 
         then:
-        1 * userRepository.findAll() >> listUsers
+        1 * tokenUtil.getUserInfoFromToken(token) >> userInfo
+        1 * userRepository.findById(Integer.parseInt(userInfo.getUserId())) >> userEntity
         thrown(NotFoundException)
     }
 
-    def "get popular users"() {
+    def "get popular users from leaderboard without database access"() {
 
         given:
         def userEntity = new UserEntity()
-        def listUsers = []
-        listUsers.add(userEntity)
-        def populars = UserMapper.INSTANCE.entityToDtoList(listUsers)
+        userEntity.setId(1)
+        userEntity.setPopularity(1)
+        userRepository.findById(userEntity.getId()) >> Optional.of(userEntity)
+        userRepository.findPopularitiesByIdIn(_) >> [new UserPopularity(1L, 2)]
+        userRepository.findUserDetailsByIdIn(_) >> [UserMapper.INSTANCE.entityToDto(userEntity)]
+        userService.addPopularity(userEntity.getId())
+        popularityCounter.flush()
 
         when:
-        userService.getPopularUsers()
+        def populars = userService.getPopularUsers()
 
         then:
-        1 * userRepository.findFirst3ByOrderByPopularityDesc() >> listUsers
-        UserMapper.INSTANCE.entityToDtoList(listUsers) == populars
+        0 * userRepository._
+        populars == [UserMapper.INSTANCE.entityToDto(userEntity)]
     }
 
     def "update remaining quack count if user exists in database"() {
@@ -323,18 +441,15 @@ class UserServiceImplTest extends Specification {
         given:
         def token = "dsadsfsf"
         def userInfo = new UserInfo()
-        def entity = new UserEntity()
-        entity.setRemainingQuackCount(12)
         userInfo.setUserId("1")
-        def userEntity = Optional.of(entity)
 
         when:
         userService.updateRemainingQuackCount(token)
 
         then:
         1 * tokenUtil.getUserInfoFromToken(token) >> userInfo
-        1 * userRepository.findById(Integer.parseInt(userInfo.getUserId())) >> userEntity
-        1 * userRepository.save(entity)
+        1 * userRepository.decreaseRemainingQuackCount(Long.parseLong(userInfo.getUserId()), LocalDate.now(), 500, 500) >> 1
+        0 * userRepository.save(_)
         notThrown(NotFoundException)
     }
 
@@ -344,14 +459,14 @@ class UserServiceImplTest extends Specification {
         def token = "dsadsfsf"
         def userInfo = new UserInfo()
         userInfo.setUserId("1")
-        def userEntity = Optional.empty()
 
         when:
         userService.updateRemainingQuackCount(token)
 
         then:
         1 * tokenUtil.getUserInfoFromToken(token) >> userInfo
-        1 * userRepository.findById(Integer.parseInt(userInfo.getUserId())) >> userEntity
+        1 * userRepository.decreaseRemainingQuackCount(Long.parseLong(userInfo.getUserId()), LocalDate.now(), 500, 500) >> 0
+        1 * userRepository.existsById(Long.parseLong(userInfo.getUserId())) >> false
         thrown(NotFoundException)
     }
 
@@ -360,17 +475,15 @@ class UserServiceImplTest extends Specification {
         given:
         def token = "dsadsfsf"
         def userInfo = new UserInfo()
-        def entity = new UserEntity()
-        entity.setRemainingQuackCount(0)
         userInfo.setUserId("1")
-        def userEntity = Optional.of(entity)
 
         when:
         userService.updateRemainingQuackCount(token)
 
         then:
         1 * tokenUtil.getUserInfoFromToken(token) >> userInfo
-        1 * userRepository.findById(Integer.parseInt(userInfo.getUserId())) >> userEntity
+        1 * userRepository.decreaseRemainingQuackCount(Long.parseLong(userInfo.getUserId()), LocalDate.now(), 500, 500) >> 0
+        1 * userRepository.existsById(Long.parseLong(userInfo.getUserId())) >> true
         thrown(ExceedLimitException)
     }
 
@@ -379,18 +492,15 @@ class UserServiceImplTest extends Specification {
         given:
         def token = "dsadsfsf"
         def userInfo = new UserInfo()
-        def entity = new UserEntity()
-        entity.setRemainingHateCount(12)
         userInfo.setUserId("1")
-        def userEntity = Optional.of(entity)
 
         when:
         userService.updateRemainingHateCount(token)
 
         then:
         1 * tokenUtil.getUserInfoFromToken(token) >> userInfo
-        1 * userRepository.findById(Integer.parseInt(userInfo.getUserId())) >> userEntity
-        1 * userRepository.save(entity)
+        1 * userRepository.decreaseRemainingHateCount(Long.parseLong(userInfo.getUserId()), LocalDate.now(), 500, 500) >> 1
+        0 * userRepository.save(_)
         notThrown(NotFoundException)
     }
 
@@ -400,14 +510,14 @@ class UserServiceImplTest extends Specification {
         def token = "dsadsfsf"
         def userInfo = new UserInfo()
         userInfo.setUserId("1")
-        def userEntity = Optional.empty()
 
         when:
         userService.updateRemainingHateCount(token)
 
         then:
         1 * tokenUtil.getUserInfoFromToken(token) >> userInfo
-        1 * userRepository.findById(Integer.parseInt(userInfo.getUserId())) >> userEntity
+        1 * userRepository.decreaseRemainingHateCount(Long.parseLong(userInfo.getUserId()), LocalDate.now(), 500, 500) >> 0
+        1 * userRepository.existsById(Long.parseLong(userInfo.getUserId())) >> false
         thrown(NotFoundException)
     }
 
@@ -416,17 +526,15 @@ class UserServiceImplTest extends Specification {
         given:
         def token = "dsadsfsf"
         def userInfo = new UserInfo()
-        def entity = new UserEntity()
-        entity.setRemainingHateCount(0)
         userInfo.setUserId("1")
-        def userEntity = Optional.of(entity)
 
         when:
         userService.updateRemainingHateCount(token)
 
         then:
         1 * tokenUtil.getUserInfoFromToken(token) >> userInfo
-        1 * userRepository.findById(Integer.parseInt(userInfo.getUserId())) >> userEntity
+        1 * userRepository.decreaseRemainingHateCount(Long.parseLong(userInfo.getUserId()), LocalDate.now(), 500, 500) >> 0
+        1 * userRepository.existsById(Long.parseLong(userInfo.getUserId())) >> true
         thrown(ExceedLimitException)
     }
 
@@ -447,6 +555,23 @@ class UserServiceImplTest extends Specification {
         notThrown(NotFoundException)
     }
 
+    def "get user by id from cache if it has been already loaded"() {
+
+        given:
+        def userEntity = new UserEntity()
+        userEntity.setId(1)
+        def user = Optional.of(userEntity)
+
+        when:
+        userService.getUserById(userEntity.getId())
+        def userDetail = userService.getUserById(userEntity.getId())
+
+        then:
+        1 * userRepository.findById(userEntity.getId()) >> user
+        userDetail.getId() == 1
+        userDetailCache.getHitRate() == 0.5
+    }
+
     def "should throw NotFoundException and don't get user by id if user doesn't exist in database"() {
 
         given:
@@ -460,22 +585,36 @@ class UserServiceImplTest extends Specification {
         thrown(NotFoundException)
     }
 
-    def "get users by id"() {
+    def "get users by id with one query in requested order"() {
 
         given:
-        def userIds = []
-        userIds.add(1L)
-        def userEntity = new UserEntity()
-        def user = Optional.of(userEntity)
-        def userDetails = []
-        userDetails.add(UserMapper.INSTANCE.entityToDto(userEntity))
+        def userIds = [2L, 1L, 3L, 2L]
+        def first = UserDetail.builder().id(1L).firstName("Murad").build()
+        def second = UserDetail.builder().id(2L).firstName("Nigar").build()
+
+        when:
+        def userDetails = userService.getUsersById(userIds)
+
+        then:
+        1 * userRepository.findUserDetailsByIdIn([2L, 1L, 3L]) >> [first, second]
+        0 * userRepository.findById(_)
+        userDetails == [second, first, second]
+    }
+
+    def "get only users which are not cached with one query"() {
+
+        given:
+        def first = UserDetail.builder().id(1L).firstName("Murad").build()
+        def second = UserDetail.builder().id(2L).firstName("Nigar").build()
 
         when:
-        userService.getUsersById(userIds)
+        userService.getUsersById([1L])
+        def userDetails = userService.getUsersById([2L, 1L])
 
         then:
-        1 * userRepository.findById(userIds.get(0)) >> user
-        UserMapper.INSTANCE.entityToDto(userEntity) == userDetails.get(0)
+        1 * userRepository.findUserDetailsByIdIn([1L]) >> [first]
+        1 * userRepository.findUserDetailsByIdIn([2L]) >> [second]
+        userDetails == [second, first]
     }
 
     def "change password if user exists in database"() {
@@ -493,7 +632,11 @@ class UserServiceImplTest extends Specification {
         then:
         1 * tokenUtil.getMailFromToken(token) >> userEntity.getMail()
         1 * userRepository.findByMail(userEntity.getMail()) >> userEntity
-        1 * userRepository.save(userEntity)
+        1 * userRepository.updatePassword(userEntity.getMail(), { it != userEntity.getPassword() }) >> 1
+        0 * userRepository.save(_)
+        1 * tokenRevocationService.revokeTokens(userEntity.getMail())
+        1 * mailServiceImpl.sendToQueue(_)
+        1 * transactionManager.commit(_)
         notThrown(NotFoundException)
     }
 
@@ -512,6 +655,8 @@ class UserServiceImplTest extends Specification {
         then:
         1 * tokenUtil.getMailFromToken(token) >> userEntity.getMail()
         1 * userRepository.findByMail(userEntity.getMail()) >> userEntity
+        0 * tokenRevocationService.revokeTokens(_)
+        0 * transactionManager._
         thrown(WrongDataException)
     }
 